@@ -0,0 +1,67 @@
+package app.tricount.bench;
+
+import app.tricount.figures.Figure;
+import app.tricount.figures.FigureGenerators;
+import app.tricount.io.ProjectDefinition;
+import app.tricount.io.ProjectIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+  @Param({"grid", "subdivision", "fan", "random", "hatching", "near-coincident"})
+  public String family;
+
+  @Param({"16", "64"})
+  public int size;
+
+  @Param({"1"})
+  public long seed;
+
+  @Param({".json", ".json.gz", ".ndjson", ".tcb"})
+  public String extension;
+
+  private final ProjectIO io = new ProjectIO();
+  private Path file;
+
+  @Setup(Level.Trial)
+  public void writeProject() throws IOException {
+    Figure figure = FigureGenerators.generate(family, size, seed);
+    file = Files.createTempFile("tricount-bench", extension);
+    if (ProjectIO.isBinaryPath(file)) {
+      io.saveBinary(file, figure.tolerance(), figure.segments());
+    } else {
+      io.save(file, figure.tolerance(), figure.segments());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteProject() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public ProjectDefinition load() throws IOException {
+    return io.load(file);
+  }
+}
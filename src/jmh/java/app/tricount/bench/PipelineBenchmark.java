@@ -0,0 +1,80 @@
+package app.tricount.bench;
+
+import app.tricount.figures.Figure;
+import app.tricount.figures.FigureGenerators;
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.DefaultTriangleCounter;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.graph.VisualTriangleCounter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+  private static final double ANGLE_TOL = 1e-6;
+
+  @Param({"default", "visual"})
+  public String engine;
+
+  @Param({"grid", "subdivision", "fan", "random", "hatching", "near-coincident"})
+  public String family;
+
+  @Param({"8", "16"})
+  public int size;
+
+  @Param({"1"})
+  public long seed;
+
+  private TriangleCounter counter;
+  private SegmentStore segments;
+  private double tolerance;
+  private Graph planar;
+  private Graph contracted;
+
+  @Setup(Level.Trial)
+  public void prepare() {
+    counter = switch (engine) {
+      case "default" -> new DefaultTriangleCounter();
+      case "visual" -> new VisualTriangleCounter();
+      default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+    };
+    Figure figure = FigureGenerators.generate(family, size, seed);
+    segments = SegmentStore.of(figure.segments()).snapshot();
+    tolerance = figure.tolerance();
+    planar = counter.buildPlanarGraph(segments, tolerance);
+    contracted = counter.contractStraightVertices(planar, ANGLE_TOL);
+  }
+
+  @Benchmark
+  public Graph contract() {
+    return counter.contractStraightVertices(planar, ANGLE_TOL);
+  }
+
+  @Benchmark
+  public List<int[]> triangles() {
+    return counter.triangles(contracted);
+  }
+
+  @Benchmark
+  public List<int[]> endToEnd() {
+    return counter.countTriangles(segments, tolerance, ANGLE_TOL);
+  }
+}
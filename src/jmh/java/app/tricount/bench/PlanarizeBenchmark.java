@@ -0,0 +1,53 @@
+package app.tricount.bench;
+
+import app.tricount.figures.Figure;
+import app.tricount.figures.FigureGenerators;
+import app.tricount.geometry.PlanarGraphBuilder;
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.Graph;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanarizeBenchmark {
+  @Param({"grid", "subdivision", "fan", "random", "hatching", "near-coincident"})
+  public String family;
+
+  @Param({"16", "64"})
+  public int size;
+
+  @Param({"1"})
+  public long seed;
+
+  private final PlanarGraphBuilder builder = new PlanarGraphBuilder();
+  private SegmentStore segments;
+  private double tolerance;
+
+  @Setup(Level.Trial)
+  public void prepare() {
+    Figure figure = FigureGenerators.generate(family, size, seed);
+    segments = SegmentStore.of(figure.segments()).snapshot();
+    tolerance = figure.tolerance();
+  }
+
+  @Benchmark
+  public Graph build() {
+    return builder.build(segments, tolerance);
+  }
+}
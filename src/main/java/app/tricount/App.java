@@ -1,117 +1,371 @@
 package app.tricount;
 
+import app.tricount.batch.BatchInputs;
+import app.tricount.batch.BatchRunner;
+import app.tricount.batch.BatchWriter;
+import app.tricount.differential.DifferentialHarness;
+import app.tricount.events.RecordingTriangleCounter;
+import app.tricount.figures.Figure;
+import app.tricount.figures.FigureGenerators;
+import app.tricount.geometry.Segment;
+import app.tricount.graph.DefaultTriangleCounter;
 import app.tricount.graph.Graph;
 import app.tricount.graph.TriangleCounter;
 import app.tricount.graph.VisualTriangleCounter;
 import app.tricount.io.ProjectDefinition;
 import app.tricount.io.ProjectIO;
+import app.tricount.output.CountReport;
+import app.tricount.output.ReportWriter;
+import app.tricount.profile.StageProfiler;
+import app.tricount.server.CountServer;
+import app.tricount.watch.ProjectWatcher;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public final class App {
+  private static final String BATCH_USAGE =
+      "       triangle-counter batch [--manifest=<file>] [--output=<file>] [--format=csv|ndjson]"
+          + " [--threads=<n>] [--engine=visual|default] [--angle-tol=<rad>] <dir|glob|file>...";
+  private static final String SERVE_USAGE =
+      "       triangle-counter serve [--port=<n>] [--threads=<n>] [--queue=<n>] [--budget-ms=<n>]"
+          + " [--engine=visual|default]";
+  private static final String DIFF_USAGE =
+      "       triangle-counter diff [--reference=visual|default] [--sizes=<n,...>] [--seed=<n>] [--threads=<n>]"
+          + " [--repeat=<n>] [--shrink=<dir>] [project...]";
+  private static final Map<String, Supplier<TriangleCounter>> ENGINES = new LinkedHashMap<>();
+
+  static {
+    ENGINES.put("visual", () -> new RecordingTriangleCounter("visual", new VisualTriangleCounter()));
+    ENGINES.put("default", () -> new RecordingTriangleCounter("default", new DefaultTriangleCounter()));
+  }
+
+  private static final String GENERATE_USAGE =
+      "       triangle-counter generate [--seed=<n>] [--expected] <grid|subdivision|fan|random|hatching|near-coincident>"
+          + " <size> <output>";
+
   public static void main(String[] args) throws Exception {
     if (args.length == 0) {
-      System.out.println("Usage: triangle-counter <input.json> [angleTol]");
+      printUsage();
       return;
     }
-    Path input = Path.of(args[0]);
-    double angleTol = args.length > 1 ? Double.parseDouble(args[1]) : 1e-6;
-    ProjectIO io = new ProjectIO();
-    ProjectDefinition project = io.load(input);
-    TriangleCounter counter = new VisualTriangleCounter();
-    Graph planar = counter.buildPlanarGraph(project.segments(), project.tolerance());
-    Graph contracted = counter.contractStraightVertices(planar, angleTol);
-    List<int[]> triangles = counter.triangles(contracted);
-    System.out.println("Segments: " + project.segments().size());
-    System.out.println("Vertices: " + contracted.vertices().size());
-    System.out.println("Edges: " + contracted.edges().size());
-    System.out.println("Triangles: " + triangles.size());
-    System.out.println();
-    printVertices(contracted);
-    printEdges(contracted);
-    printTriangles(contracted, triangles);
+    if ("batch".equals(args[0])) {
+      runBatch(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if ("serve".equals(args[0])) {
+      runServer(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if ("diff".equals(args[0])) {
+      runDiff(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if ("generate".equals(args[0])) {
+      runGenerate(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if ("convert".equals(args[0])) {
+      if (args.length != 3) {
+        System.out.println("Usage: triangle-counter convert <input> <output.json|output.tcb>");
+        return;
+      }
+      new ProjectIO().convert(Path.of(args[1]), Path.of(args[2]));
+      return;
+    }
+    runSingle(args);
   }
 
-  private static void printVertices(Graph graph) {
-    System.out.println("Vertices:");
-    for (Graph.V vertex : graph.vertices()) {
-      String name = nameFor(vertex.id());
-      System.out.printf("  %s (id=%d): (%.6f, %.6f)%n", name, vertex.id(), vertex.x(), vertex.y());
-    }
-    System.out.println();
+  private static void printUsage() {
+    System.out.println(
+        "Usage: triangle-counter [--format=text|json|csv|binary] [--output=<file>] [--watch]"
+            + " [--profile[=<file>]]"
+            + " <input.json[.gz]|input.ndjson[.gz]|input.tcb> [angleTol]");
+    System.out.println("       triangle-counter convert <input> <output.json|output.tcb>");
+    System.out.println(BATCH_USAGE);
+    System.out.println(SERVE_USAGE);
+    System.out.println(GENERATE_USAGE);
+    System.out.println(DIFF_USAGE);
   }
 
-  private static void printEdges(Graph graph) {
-    System.out.println("Edges:");
-    List<Graph.E> edges = new ArrayList<>(graph.edges());
-    edges.sort(Comparator.comparing(e -> edgeKeyName(e)));
-    for (Graph.E edge : edges) {
-      String uName = nameFor(edge.u());
-      String vName = nameFor(edge.v());
-      System.out.printf("  %s-%s (ids=%d-%d)%n", uName, vName, edge.u(), edge.v());
-    }
-    System.out.println();
+  private static void runSingle(String[] args) throws IOException, InterruptedException {
+    List<String> positional = new ArrayList<>();
+    ReportWriter.Format format = ReportWriter.Format.TEXT;
+    Path output = null;
+    boolean watch = false;
+    String profile = null;
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        positional.add(arg);
+        continue;
+      }
+      int eq = arg.indexOf('=');
+      String name = eq > 0 ? arg.substring(2, eq) : arg.substring(2);
+      String value = eq > 0 ? arg.substring(eq + 1) : "";
+      switch (name) {
+        case "format" -> format = ReportWriter.Format.parse(value);
+        case "output" -> output = Path.of(value);
+        case "watch" -> watch = true;
+        case "profile" -> profile = value;
+        default -> {
+          printUsage();
+          return;
+        }
+      }
+    }
+    if (positional.isEmpty()) {
+      printUsage();
+      return;
+    }
+    Path input = Path.of(positional.get(0));
+    double angleTol = positional.size() > 1 ? Double.parseDouble(positional.get(1)) : 1e-6;
+    if (watch) {
+      new ProjectWatcher(input, engineFactory("visual").get(), angleTol).run(System.out);
+      return;
+    }
+    ProjectIO io = new ProjectIO();
+    TriangleCounter counter = engineFactory("visual").get();
+    // NDJSON is parsed on pool threads, so the load stage's CPU time and allocations only cover this thread.
+    StageProfiler profiler = profile != null ? new StageProfiler() : StageProfiler.disabled();
+    ProjectDefinition project = profiler.measure("load", () -> io.load(input));
+    profiler.size("segments", project.store().size());
+    Graph planar = profiler.measure(
+        "planarize", () -> counter.buildPlanarGraph(project.store(), project.tolerance()));
+    profiler.size("vertices", planar.vertexCount());
+    profiler.size("edges", planar.edgeCount());
+    profiler.size("nodedSegments", nodedSegmentCount(planar));
+    Graph contracted = profiler.measure("contract", () -> counter.contractStraightVertices(planar, angleTol));
+    profiler.size("vertices", contracted.vertexCount());
+    profiler.size("edges", contracted.edgeCount());
+    List<int[]> triangles = profiler.measure("triangles", () -> counter.triangles(contracted));
+    profiler.size("triangles", triangles.size());
+    CountReport report = new CountReport(project.store().size(), contracted, triangles);
+    if (profile != null) {
+      if (profile.isEmpty()) {
+        profiler.writeJson(System.err, input.toString());
+      } else {
+        try (OutputStream out = Files.newOutputStream(Path.of(profile))) {
+          profiler.writeJson(out, input.toString());
+        }
+      }
+    }
+    if (output == null) {
+      new ReportWriter().write(report, format, System.out);
+      return;
+    }
+    try (OutputStream out = Files.newOutputStream(output)) {
+      new ReportWriter().write(report, format, out);
+    }
   }
 
-  private static void printTriangles(Graph graph, List<int[]> triangles) {
-    System.out.println("Triangles:");
-    List<int[]> ordered = new ArrayList<>(triangles);
-    ordered.sort(Comparator.comparing(App::triangleKey));
-    for (int[] triangle : ordered) {
-      String name = triangleName(triangle);
-      double area = triangleArea(graph, triangle);
-      System.out.printf(
-          "  %s (ids=%d,%d,%d) area=%.6f%n",
-          name, triangle[0], triangle[1], triangle[2], area);
+  private static long nodedSegmentCount(Graph graph) {
+    long total = 0;
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      total += graph.multiplicity(e);
     }
+    return total;
   }
 
-  private static double triangleArea(Graph graph, int[] triangle) {
-    Graph.V a = graph.vertices().get(triangle[0]);
-    Graph.V b = graph.vertices().get(triangle[1]);
-    Graph.V c = graph.vertices().get(triangle[2]);
-    double area2 =
-        Math.abs(
-            a.x() * (b.y() - c.y())
-                + b.x() * (c.y() - a.y())
-                + c.x() * (a.y() - b.y()));
-    return 0.5 * area2;
+  private static void runBatch(String[] args) throws IOException {
+    List<String> inputs = new ArrayList<>();
+    Path manifest = null;
+    Path output = null;
+    BatchWriter.Format format = null;
+    int threads = BatchRunner.defaultWorkers();
+    String engine = "visual";
+    double angleTol = 1e-6;
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        inputs.add(arg);
+        continue;
+      }
+      int eq = arg.indexOf('=');
+      String name = eq > 0 ? arg.substring(2, eq) : arg.substring(2);
+      String value = eq > 0 ? arg.substring(eq + 1) : "";
+      switch (name) {
+        case "manifest" -> manifest = Path.of(value);
+        case "output" -> output = Path.of(value);
+        case "format" -> format = BatchWriter.Format.parse(value);
+        case "threads" -> threads = Integer.parseInt(value);
+        case "engine" -> engine = value;
+        case "angle-tol" -> angleTol = Double.parseDouble(value);
+        default -> {
+          System.out.println("Usage:");
+          System.out.println(BATCH_USAGE);
+          return;
+        }
+      }
+    }
+    if (inputs.isEmpty() && manifest == null) {
+      System.out.println("Usage:");
+      System.out.println(BATCH_USAGE);
+      return;
+    }
+    Supplier<TriangleCounter> engines = engineFactory(engine);
+    List<Path> files = BatchInputs.resolve(inputs, manifest);
+    if (format == null) {
+      format = output != null ? BatchWriter.Format.forPath(output) : BatchWriter.Format.CSV;
+    }
+    Writer out = output != null
+        ? Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+        : new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    BatchRunner.Summary summary;
+    try (BatchWriter writer = new BatchWriter(out, format)) {
+      summary = new BatchRunner(engines, angleTol, threads).run(files, writer);
+    } finally {
+      if (output != null) {
+        out.close();
+      }
+    }
+    System.err.printf(
+        Locale.US,
+        "Processed %d files (%d failed) in %.1f s%n",
+        summary.files(),
+        summary.failures(),
+        summary.elapsedNanos() / 1e9);
   }
 
-  private static String triangleName(int[] triangle) {
-    StringBuilder sb = new StringBuilder();
-    for (int index : triangle) {
-      sb.append(nameFor(index));
+  private static void runServer(String[] args) throws IOException, InterruptedException {
+    CountServer.Options options = CountServer.Options.defaults();
+    String engine = "visual";
+    for (String arg : args) {
+      int eq = arg.indexOf('=');
+      String name = arg.startsWith("--") && eq > 0 ? arg.substring(2, eq) : "";
+      String value = eq > 0 ? arg.substring(eq + 1) : "";
+      switch (name) {
+        case "port" -> options = options.withPort(Integer.parseInt(value));
+        case "threads" -> options = options.withWorkers(Integer.parseInt(value));
+        case "queue" -> options = options.withQueueCapacity(Integer.parseInt(value));
+        case "budget-ms" -> options = options.withBudgetMillis(Long.parseLong(value));
+        case "engine" -> engine = value;
+        default -> {
+          System.out.println("Usage:");
+          System.out.println(SERVE_USAGE);
+          return;
+        }
+      }
     }
-    return sb.toString();
+    CountServer server = CountServer.start(engineFactory(engine).get(), options);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close, "count-server-shutdown"));
+    System.err.printf("Listening on http://localhost:%d/count%n", server.port());
+    Thread.currentThread().join();
   }
 
-  private static String triangleKey(int[] triangle) {
-    String[] names = new String[triangle.length];
-    for (int i = 0; i < triangle.length; i++) {
-      names[i] = nameFor(triangle[i]);
+  private static void runGenerate(String[] args) throws IOException {
+    List<String> positional = new ArrayList<>();
+    long seed = 1;
+    boolean expected = false;
+    for (String arg : args) {
+      if (arg.startsWith("--seed=")) {
+        seed = Long.parseLong(arg.substring("--seed=".length()));
+      } else if (arg.equals("--expected")) {
+        expected = true;
+      } else if (arg.startsWith("--")) {
+        positional.clear();
+        break;
+      } else {
+        positional.add(arg);
+      }
+    }
+    if (positional.size() != 3) {
+      System.out.println("Usage:");
+      System.out.println(GENERATE_USAGE);
+      return;
+    }
+    Figure figure = FigureGenerators.generate(positional.get(0), Integer.parseInt(positional.get(1)), seed);
+    Path output = Path.of(positional.get(2));
+    ProjectIO io = new ProjectIO();
+    if (ProjectIO.isBinaryPath(output)) {
+      io.saveBinary(output, figure.tolerance(), figure.segments());
+    } else {
+      io.save(output, figure.tolerance(), figure.segments());
+    }
+    System.err.printf("Wrote %d segments to %s%n", figure.segments().size(), output);
+    if (expected) {
+      System.err.printf("Expected triangles: %d%n", figure.triangles());
     }
-    Arrays.sort(names);
-    return String.join("", names);
   }
 
-  private static String edgeKeyName(Graph.E edge) {
-    String[] names = {nameFor(edge.u()), nameFor(edge.v())};
-    Arrays.sort(names);
-    return names[0] + names[1];
+  private static void runDiff(String[] args) throws IOException {
+    List<Path> recorded = new ArrayList<>();
+    String reference = "visual";
+    int[] sizes = {2, 4, 8};
+    long seed = 1;
+    int threads = BatchRunner.defaultWorkers();
+    int repeat = 3;
+    Path shrinkDir = null;
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        recorded.add(Path.of(arg));
+        continue;
+      }
+      int eq = arg.indexOf('=');
+      String name = eq > 0 ? arg.substring(2, eq) : arg.substring(2);
+      String value = eq > 0 ? arg.substring(eq + 1) : "";
+      switch (name) {
+        case "reference" -> reference = value;
+        case "sizes" -> sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+        case "seed" -> seed = Long.parseLong(value);
+        case "threads" -> threads = Integer.parseInt(value);
+        case "repeat" -> repeat = Integer.parseInt(value);
+        case "shrink" -> shrinkDir = Path.of(value);
+        default -> {
+          System.out.println("Usage:");
+          System.out.println(DIFF_USAGE);
+          return;
+        }
+      }
+    }
+    List<DifferentialHarness.Case> cases = new ArrayList<>();
+    for (String family : FigureGenerators.FAMILIES) {
+      for (int size : sizes) {
+        Figure figure = FigureGenerators.generate(family, size, seed);
+        cases.add(new DifferentialHarness.Case(family + "-" + size, figure.segments(), figure.tolerance()));
+      }
+    }
+    ProjectIO io = new ProjectIO();
+    for (Path file : recorded) {
+      ProjectDefinition project = io.load(file);
+      cases.add(new DifferentialHarness.Case(file.toString(), project.segments(), project.tolerance()));
+    }
+    DifferentialHarness harness = new DifferentialHarness(ENGINES, reference, 1e-6, threads, repeat);
+    DifferentialHarness.Report report = harness.run(cases);
+    report.write(System.out);
+    if (shrinkDir == null) {
+      return;
+    }
+    Files.createDirectories(shrinkDir);
+    for (DifferentialHarness.Outcome outcome : report.outcomes()) {
+      for (DifferentialHarness.Run run : outcome.runs()) {
+        if (run.agrees()) {
+          continue;
+        }
+        List<Segment> minimal = harness.shrink(outcome.input(), run.engine());
+        String name = outcome.input().name().replaceAll("[^A-Za-z0-9._-]", "_") + "-" + run.engine() + ".json";
+        Path target = shrinkDir.resolve(name);
+        io.save(target, outcome.input().tolerance(), minimal);
+        System.out.printf(
+            "Shrunk %s for %s to %d segments: %s%n", outcome.input().name(), run.engine(), minimal.size(), target);
+      }
+    }
   }
 
-  private static String nameFor(int id) {
-    StringBuilder sb = new StringBuilder();
-    int value = id;
-    while (value >= 0) {
-      int rem = value % 26;
-      sb.append((char) ('A' + rem));
-      value = (value / 26) - 1;
-    }
-    return sb.reverse().toString();
+  private static Supplier<TriangleCounter> engineFactory(String engine) {
+    Supplier<TriangleCounter> factory = ENGINES.get(engine);
+    if (factory == null) {
+      throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+    return factory;
   }
 }
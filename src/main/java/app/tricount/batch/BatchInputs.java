@@ -0,0 +1,107 @@
+package app.tricount.batch;
+
+import app.tricount.io.ProjectIO;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+public final class BatchInputs {
+  private BatchInputs() {}
+
+  public static List<Path> resolve(Collection<String> arguments, Path manifest) throws IOException {
+    Set<Path> inputs = new LinkedHashSet<>();
+    if (manifest != null) {
+      Path base = manifest.toAbsolutePath().getParent();
+      for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+        String entry = line.strip();
+        if (entry.isEmpty() || entry.startsWith("#")) {
+          continue;
+        }
+        expand(relativeTo(base, entry), inputs);
+      }
+    }
+    for (String argument : arguments) {
+      expand(argument, inputs);
+    }
+    return new ArrayList<>(inputs);
+  }
+
+  private static String relativeTo(Path base, String entry) {
+    if (!isGlob(entry)) {
+      return base.resolve(entry).toString();
+    }
+    String normalized = entry.replace('\\', '/');
+    if (normalized.startsWith("/") || normalized.matches("[A-Za-z]:/.*")) {
+      return normalized;
+    }
+    return base.toString().replace('\\', '/') + "/" + normalized;
+  }
+
+  private static void expand(String argument, Set<Path> inputs) throws IOException {
+    if (isGlob(argument)) {
+      expandGlob(argument, inputs);
+      return;
+    }
+    Path path = Path.of(argument).normalize();
+    if (Files.isDirectory(path)) {
+      walk(path, ProjectIO::isProjectPath, inputs);
+    } else if (Files.exists(path)) {
+      inputs.add(path);
+    } else {
+      throw new IOException("No such file or directory: " + argument);
+    }
+  }
+
+  private static void expandGlob(String pattern, Set<Path> inputs) throws IOException {
+    String normalized = pattern.replace('\\', '/');
+    String[] parts = normalized.split("/", -1);
+    int literal = 0;
+    while (literal < parts.length - 1 && !isGlob(parts[literal])) {
+      literal++;
+    }
+    String prefix = String.join("/", List.of(parts).subList(0, literal));
+    Path base = normalized.startsWith("/") && prefix.isEmpty()
+        ? Path.of("/")
+        : Path.of(prefix.isEmpty() ? "." : prefix);
+    String rest = String.join("/", List.of(parts).subList(literal, parts.length));
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + rest);
+    if (Files.isDirectory(base)) {
+      walk(base, path -> matcher.matches(base.relativize(path)), inputs);
+    }
+  }
+
+  private static void walk(Path root, Predicate<Path> filter, Set<Path> inputs) throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      List<Path> matches = paths
+          .filter(Files::isRegularFile)
+          .filter(filter)
+          .map(Path::normalize)
+          .sorted()
+          .toList();
+      inputs.addAll(matches);
+    }
+  }
+
+  private static boolean isGlob(String argument) {
+    for (int i = 0; i < argument.length(); i++) {
+      switch (argument.charAt(i)) {
+        case '*', '?', '[', '{' -> {
+          return true;
+        }
+        default -> {
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,23 @@
+package app.tricount.batch;
+
+import java.nio.file.Path;
+
+public record BatchRow(
+    Path file,
+    int segments,
+    int vertices,
+    int edges,
+    int triangles,
+    long loadNanos,
+    long countNanos,
+    String error) {
+  public static BatchRow failure(Path file, long loadNanos, long countNanos, Throwable error) {
+    String message = error.getMessage();
+    String text = error.getClass().getSimpleName() + (message != null ? ": " + message : "");
+    return new BatchRow(file, 0, 0, 0, 0, loadNanos, countNanos, text.replaceAll("\\s+", " ").strip());
+  }
+
+  public boolean ok() {
+    return error == null;
+  }
+}
@@ -0,0 +1,128 @@
+package app.tricount.batch;
+
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.io.ProjectDefinition;
+import app.tricount.io.ProjectIO;
+import app.tricount.metrics.TriangleCounterMetrics;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+public final class BatchRunner {
+  public record Summary(int files, int failures, long elapsedNanos) {}
+
+  private final ProjectIO io = new ProjectIO();
+  private final Supplier<TriangleCounter> engines;
+  private final double angleTolerance;
+  private final int workers;
+
+  public BatchRunner(Supplier<TriangleCounter> engines, double angleTolerance, int workers) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("Worker count must be positive");
+    }
+    this.engines = engines;
+    this.angleTolerance = angleTolerance;
+    this.workers = workers;
+  }
+
+  public static int defaultWorkers() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  public Summary run(List<Path> inputs, BatchWriter writer) throws IOException {
+    long start = System.nanoTime();
+    ThreadLocal<TriangleCounter> counters = ThreadLocal.withInitial(engines);
+    Semaphore loaded = new Semaphore(workers * 2);
+    AtomicInteger failures = new AtomicInteger();
+    AtomicReference<IOException> writeError = new AtomicReference<>();
+    AtomicInteger threadIds = new AtomicInteger();
+    ExecutorService cpu = Executors.newFixedThreadPool(workers, r -> {
+      Thread thread = new Thread(r, "batch-counter-" + threadIds.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (ExecutorService files = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (Path input : inputs) {
+        files.submit(() -> {
+          BatchRow row = process(input, loaded, cpu, counters);
+          TriangleCounterMetrics.get().batchFile(row.ok());
+          if (!row.ok()) {
+            failures.incrementAndGet();
+          }
+          try {
+            writer.write(row);
+          } catch (IOException error) {
+            writeError.compareAndSet(null, error);
+          }
+        });
+      }
+    } finally {
+      cpu.shutdownNow();
+    }
+    if (writeError.get() != null) {
+      throw writeError.get();
+    }
+    return new Summary(inputs.size(), failures.get(), System.nanoTime() - start);
+  }
+
+  private BatchRow process(
+      Path input, Semaphore loaded, ExecutorService cpu, ThreadLocal<TriangleCounter> counters) {
+    long loadNanos = 0;
+    try {
+      loaded.acquire();
+    } catch (InterruptedException error) {
+      Thread.currentThread().interrupt();
+      return BatchRow.failure(input, 0, 0, error);
+    }
+    // Started after the permit so load_ms measures reading and parsing, not the wait for a slot.
+    long started = System.nanoTime();
+    try {
+      ProjectDefinition project = io.load(input);
+      long loadTime = System.nanoTime() - started;
+      loadNanos = loadTime;
+      Future<BatchRow> counted = cpu.submit(() -> count(input, project, counters.get(), loadTime));
+      return counted.get();
+    } catch (ExecutionException error) {
+      return BatchRow.failure(input, loadNanos, 0, error.getCause());
+    } catch (InterruptedException error) {
+      Thread.currentThread().interrupt();
+      return BatchRow.failure(input, loadNanos, 0, error);
+    } catch (Throwable error) {
+      // Errors such as OutOfMemoryError on a huge file still have to produce a row.
+      return BatchRow.failure(input, loadNanos > 0 ? loadNanos : System.nanoTime() - started, 0, error);
+    } finally {
+      loaded.release();
+    }
+  }
+
+  private BatchRow count(Path input, ProjectDefinition project, TriangleCounter counter, long loadNanos) {
+    long countStart = System.nanoTime();
+    Graph contracted;
+    List<int[]> triangles;
+    try {
+      Graph planar = counter.buildPlanarGraph(project.store(), project.tolerance());
+      contracted = counter.contractStraightVertices(planar, angleTolerance);
+      triangles = counter.triangles(contracted);
+    } catch (Throwable error) {
+      return BatchRow.failure(input, loadNanos, System.nanoTime() - countStart, error);
+    }
+    return new BatchRow(
+        input,
+        project.store().size(),
+        contracted.vertexCount(),
+        contracted.edgeCount(),
+        triangles.size(),
+        loadNanos,
+        System.nanoTime() - countStart,
+        null);
+  }
+}
@@ -0,0 +1,122 @@
+package app.tricount.batch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Locale;
+
+public final class BatchWriter implements Closeable {
+  public enum Format {
+    CSV,
+    NDJSON;
+
+    public static Format forPath(Path path) {
+      String name = path.getFileName() != null ? path.getFileName().toString().toLowerCase(Locale.ROOT) : "";
+      return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+    }
+
+    public static Format parse(String value) {
+      return switch (value.toLowerCase(Locale.ROOT)) {
+        case "csv" -> CSV;
+        case "ndjson", "jsonl" -> NDJSON;
+        default -> throw new IllegalArgumentException("Unknown batch format: " + value);
+      };
+    }
+  }
+
+  private static final String[] COLUMNS = {
+      "file", "status", "segments", "vertices", "edges", "triangles", "load_ms", "count_ms", "error"
+  };
+
+  private final Writer out;
+  private final Format format;
+  private final JsonGenerator generator;
+
+  public BatchWriter(Writer out, Format format) throws IOException {
+    this.out = out;
+    this.format = format;
+    if (format == Format.NDJSON) {
+      JsonFactory factory = new JsonFactory();
+      factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator = factory.createGenerator(out);
+      generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+    } else {
+      generator = null;
+      out.write(String.join(",", COLUMNS));
+      out.write('\n');
+      out.flush();
+    }
+  }
+
+  public synchronized void write(BatchRow row) throws IOException {
+    if (format == Format.NDJSON) {
+      writeJson(row);
+    } else {
+      writeCsv(row);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (generator != null) {
+      generator.writeRaw('\n');
+      generator.close();
+    }
+    out.flush();
+  }
+
+  private void writeJson(BatchRow row) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField(COLUMNS[0], row.file().toString());
+    generator.writeStringField(COLUMNS[1], row.ok() ? "ok" : "error");
+    if (row.ok()) {
+      generator.writeNumberField(COLUMNS[2], row.segments());
+      generator.writeNumberField(COLUMNS[3], row.vertices());
+      generator.writeNumberField(COLUMNS[4], row.edges());
+      generator.writeNumberField(COLUMNS[5], row.triangles());
+    }
+    generator.writeNumberField(COLUMNS[6], millis(row.loadNanos()));
+    generator.writeNumberField(COLUMNS[7], millis(row.countNanos()));
+    if (!row.ok()) {
+      generator.writeStringField(COLUMNS[8], row.error());
+    }
+    generator.writeEndObject();
+    generator.flush();
+  }
+
+  private void writeCsv(BatchRow row) throws IOException {
+    StringBuilder sb = new StringBuilder(128);
+    sb.append(quote(row.file().toString())).append(',');
+    sb.append(row.ok() ? "ok" : "error").append(',');
+    if (row.ok()) {
+      sb.append(row.segments()).append(',');
+      sb.append(row.vertices()).append(',');
+      sb.append(row.edges()).append(',');
+      sb.append(row.triangles()).append(',');
+    } else {
+      sb.append(",,,,");
+    }
+    sb.append(String.format(Locale.US, "%.3f,%.3f,", millis(row.loadNanos()), millis(row.countNanos())));
+    if (!row.ok()) {
+      sb.append(quote(row.error()));
+    }
+    sb.append('\n');
+    out.write(sb.toString());
+    out.flush();
+  }
+
+  private static double millis(long nanos) {
+    return Math.round(nanos / 1_000d) / 1_000d;
+  }
+
+  private static String quote(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
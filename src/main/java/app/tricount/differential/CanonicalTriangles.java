@@ -0,0 +1,111 @@
+package app.tricount.differential;
+
+import app.tricount.graph.Graph;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Engine-independent triangle set: triangles are compared by corner coordinates within a tolerance, so
+// engines that number or contract vertices differently still compare equal.
+public final class CanonicalTriangles {
+  public static final CanonicalTriangles EMPTY = new CanonicalTriangles(new double[0], 0);
+
+  private final double[] corners;
+  private final double tolerance;
+
+  private CanonicalTriangles(double[] corners, double tolerance) {
+    this.corners = corners;
+    this.tolerance = tolerance;
+  }
+
+  public static CanonicalTriangles of(Graph graph, List<int[]> triangles) {
+    double[] corners = new double[triangles.size() * 6];
+    for (int i = 0; i < triangles.size(); i++) {
+      int[] tri = triangles.get(i);
+      for (int k = 0; k < 3; k++) {
+        corners[i * 6 + k * 2] = graph.x(tri[k]);
+        corners[i * 6 + k * 2 + 1] = graph.y(tri[k]);
+      }
+    }
+    return new CanonicalTriangles(corners, Math.max(graph.coordinateTolerance(), 1e-9) * 4);
+  }
+
+  public int size() {
+    return corners.length / 6;
+  }
+
+  // Triangles present here without a counterpart in other, counted with multiplicity. Two triangles match
+  // when every corner of one lies within the tolerance of a distinct corner of the other.
+  public int missingFrom(CanonicalTriangles other) {
+    double cell = Math.max(Math.max(tolerance, other.tolerance), 1e-9);
+    Map<Long, List<Integer>> index = new HashMap<>();
+    for (int u = 0; u < other.size(); u++) {
+      index.computeIfAbsent(other.cellOf(u, cell, 0, 0), k -> new ArrayList<>()).add(u);
+    }
+    boolean[] used = new boolean[other.size()];
+    int missing = 0;
+    for (int t = 0; t < size(); t++) {
+      if (!claimMatch(t, other, index, used, cell)) {
+        missing++;
+      }
+    }
+    return missing;
+  }
+
+  public boolean sameAs(CanonicalTriangles other) {
+    return size() == other.size() && missingFrom(other) == 0;
+  }
+
+  // Matching corners move the centroid by at most the tolerance, so the neighbouring cells cover every match.
+  private boolean claimMatch(
+      int t, CanonicalTriangles other, Map<Long, List<Integer>> index, boolean[] used, double cell) {
+    for (int dx = -1; dx <= 1; dx++) {
+      for (int dy = -1; dy <= 1; dy++) {
+        List<Integer> candidates = index.get(cellOf(t, cell, dx, dy));
+        if (candidates == null) {
+          continue;
+        }
+        for (int u : candidates) {
+          if (!used[u] && matches(t, other, u, cell)) {
+            used[u] = true;
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean matches(int t, CanonicalTriangles other, int u, double limit) {
+    boolean[] taken = new boolean[3];
+    for (int a = 0; a < 3; a++) {
+      double x = corners[t * 6 + a * 2];
+      double y = corners[t * 6 + a * 2 + 1];
+      boolean found = false;
+      for (int b = 0; b < 3 && !found; b++) {
+        if (taken[b]) {
+          continue;
+        }
+        double ox = other.corners[u * 6 + b * 2];
+        double oy = other.corners[u * 6 + b * 2 + 1];
+        if (Math.hypot(ox - x, oy - y) <= limit) {
+          taken[b] = true;
+          found = true;
+        }
+      }
+      if (!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long cellOf(int t, double cell, int dx, int dy) {
+    double cx = (corners[t * 6] + corners[t * 6 + 2] + corners[t * 6 + 4]) / 3;
+    double cy = (corners[t * 6 + 1] + corners[t * 6 + 3] + corners[t * 6 + 5]) / 3;
+    long qx = (long) Math.floor(cx / cell) + dx;
+    long qy = (long) Math.floor(cy / cell) + dy;
+    return (qx << 32) ^ (qy & 0xffffffffL);
+  }
+}
@@ -0,0 +1,69 @@
+package app.tricount.differential;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Zeller's ddmin: returns a 1-minimal sublist that still fails.
+public final class DeltaDebugger {
+  private DeltaDebugger() {}
+
+  public static <T> List<T> minimize(List<T> input, Predicate<List<T>> failing) {
+    if (!failing.test(input)) {
+      throw new IllegalArgumentException("Input does not fail");
+    }
+    List<T> current = new ArrayList<>(input);
+    int granularity = 2;
+    while (current.size() >= 2) {
+      List<List<T>> chunks = split(current, granularity);
+      boolean reduced = false;
+      for (List<T> chunk : chunks) {
+        if (failing.test(chunk)) {
+          current = chunk;
+          granularity = 2;
+          reduced = true;
+          break;
+        }
+      }
+      if (!reduced && granularity > 2) {
+        for (int i = 0; i < chunks.size(); i++) {
+          List<T> complement = complement(chunks, i);
+          if (failing.test(complement)) {
+            current = complement;
+            granularity = Math.max(granularity - 1, 2);
+            reduced = true;
+            break;
+          }
+        }
+      }
+      if (!reduced) {
+        if (granularity >= current.size()) {
+          break;
+        }
+        granularity = Math.min(granularity * 2, current.size());
+      }
+    }
+    return current;
+  }
+
+  private static <T> List<List<T>> split(List<T> items, int parts) {
+    List<List<T>> chunks = new ArrayList<>(parts);
+    int start = 0;
+    for (int i = 0; i < parts; i++) {
+      int end = start + (items.size() - start) / (parts - i);
+      chunks.add(new ArrayList<>(items.subList(start, end)));
+      start = end;
+    }
+    return chunks;
+  }
+
+  private static <T> List<T> complement(List<List<T>> chunks, int skip) {
+    List<T> result = new ArrayList<>();
+    for (int i = 0; i < chunks.size(); i++) {
+      if (i != skip) {
+        result.addAll(chunks.get(i));
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,212 @@
+package app.tricount.differential;
+
+import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+public final class DifferentialHarness {
+  public record Case(String name, List<Segment> segments, double tolerance) {}
+
+  // error is null unless the engine threw; a crash always counts as a disagreement.
+  public record Run(String engine, int triangles, long bestNanos, int missing, int extra, String error) {
+    public boolean agrees() {
+      return error == null && missing == 0 && extra == 0;
+    }
+
+    public String status() {
+      if (error != null) {
+        return "error: " + error;
+      }
+      return agrees() ? "agrees" : "missing " + missing + ", extra " + extra;
+    }
+  }
+
+  public record Outcome(Case input, List<Run> runs) {
+    public boolean agrees() {
+      return runs.stream().allMatch(Run::agrees);
+    }
+  }
+
+  public record Report(String reference, List<Outcome> outcomes) {
+    public int disagreements() {
+      return (int) outcomes.stream().filter(outcome -> !outcome.agrees()).count();
+    }
+
+    // Total reference time over total engine time across all cases.
+    public double speedup(String engine) {
+      long reference = 0;
+      long candidate = 0;
+      for (Outcome outcome : outcomes) {
+        for (Run run : outcome.runs()) {
+          if (run.engine().equals(this.reference)) {
+            reference += run.bestNanos();
+          }
+          if (run.engine().equals(engine)) {
+            candidate += run.bestNanos();
+          }
+        }
+      }
+      return candidate == 0 ? Double.NaN : (double) reference / candidate;
+    }
+
+    public void write(PrintStream out) {
+      for (Outcome outcome : outcomes) {
+        out.printf("%s (%d segments)%n", outcome.input().name(), outcome.input().segments().size());
+        for (Run run : outcome.runs()) {
+          out.printf(
+              Locale.US,
+              "  %-10s %8d triangles %10.3f ms  %s%n",
+              run.engine(),
+              run.triangles(),
+              run.bestNanos() / 1e6,
+              run.status());
+        }
+      }
+      if (outcomes.isEmpty()) {
+        return;
+      }
+      out.printf("Speedup vs %s:%n", reference);
+      for (Run run : outcomes.get(0).runs()) {
+        out.printf(Locale.US, "  %-10s %8.2fx%n", run.engine(), speedup(run.engine()));
+      }
+      out.printf("%d of %d cases disagree%n", disagreements(), outcomes.size());
+    }
+  }
+
+  private final Map<String, Supplier<TriangleCounter>> engines;
+  private final String reference;
+  private final double angleTolerance;
+  private final int workers;
+  private final int repetitions;
+
+  public DifferentialHarness(
+      Map<String, Supplier<TriangleCounter>> engines,
+      String reference,
+      double angleTolerance,
+      int workers,
+      int repetitions) {
+    if (!engines.containsKey(reference)) {
+      throw new IllegalArgumentException("Unknown reference engine: " + reference);
+    }
+    if (workers < 1 || repetitions < 1) {
+      throw new IllegalArgumentException("Workers and repetitions must be positive");
+    }
+    this.engines = new LinkedHashMap<>(engines);
+    this.reference = reference;
+    this.angleTolerance = angleTolerance;
+    this.workers = workers;
+    this.repetitions = repetitions;
+  }
+
+  // Cases run in parallel; the engines of one case run back to back on the same thread so their
+  // timings are comparable.
+  public Report run(List<Case> cases) {
+    ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+      Thread thread = new Thread(r, "differential");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Outcome>> futures = new ArrayList<>(cases.size());
+      for (Case input : cases) {
+        futures.add(pool.submit(() -> compare(input)));
+      }
+      List<Outcome> outcomes = new ArrayList<>(cases.size());
+      for (Future<Outcome> future : futures) {
+        outcomes.add(future.get());
+      }
+      return new Report(reference, outcomes);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Differential run interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Differential run failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  // Smallest segment subset on which engine still disagrees with the reference or either one throws.
+  public List<Segment> shrink(Case input, String engine) {
+    Supplier<TriangleCounter> candidate = engines.get(engine);
+    if (candidate == null) {
+      throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+    TriangleCounter expected = engines.get(reference).get();
+    TriangleCounter actual = candidate.get();
+    return DeltaDebugger.minimize(input.segments(), segments -> {
+      SegmentStore store = SegmentStore.of(segments);
+      try {
+        CanonicalTriangles reference = canonical(count(expected, store, input.tolerance()));
+        return !reference.sameAs(canonical(count(actual, store, input.tolerance())));
+      } catch (RuntimeException | StackOverflowError error) {
+        return true;
+      }
+    });
+  }
+
+  private Outcome compare(Case input) {
+    SegmentStore store = SegmentStore.of(input.segments()).snapshot();
+    Map<String, CanonicalTriangles> results = new LinkedHashMap<>();
+    Map<String, Long> timings = new LinkedHashMap<>();
+    Map<String, String> errors = new LinkedHashMap<>();
+    for (Map.Entry<String, Supplier<TriangleCounter>> entry : engines.entrySet()) {
+      long best = Long.MAX_VALUE;
+      Counted counted = null;
+      try {
+        TriangleCounter counter = entry.getValue().get();
+        for (int i = 0; i < repetitions; i++) {
+          long start = System.nanoTime();
+          counted = count(counter, store, input.tolerance());
+          best = Math.min(best, System.nanoTime() - start);
+        }
+        results.put(entry.getKey(), canonical(counted));
+      } catch (RuntimeException | StackOverflowError error) {
+        errors.put(entry.getKey(), error.getClass().getSimpleName() + ": " + error.getMessage());
+      }
+      timings.put(entry.getKey(), best == Long.MAX_VALUE ? 0 : best);
+    }
+    CanonicalTriangles expected = results.getOrDefault(reference, CanonicalTriangles.EMPTY);
+    List<Run> runs = new ArrayList<>(engines.size());
+    for (String engine : engines.keySet()) {
+      CanonicalTriangles actual = results.get(engine);
+      if (actual == null) {
+        runs.add(new Run(engine, 0, timings.get(engine), 0, 0, errors.get(engine)));
+        continue;
+      }
+      runs.add(new Run(
+          engine,
+          actual.size(),
+          timings.get(engine),
+          expected.missingFrom(actual),
+          actual.missingFrom(expected),
+          null));
+    }
+    return new Outcome(input, runs);
+  }
+
+  private record Counted(Graph graph, List<int[]> triangles) {}
+
+  // Only the engine calls are timed; canonicalisation happens afterwards.
+  private Counted count(TriangleCounter counter, SegmentStore store, double tolerance) {
+    Graph planar = counter.buildPlanarGraph(store, tolerance);
+    Graph contracted = counter.contractStraightVertices(planar, angleTolerance);
+    return new Counted(contracted, counter.triangles(contracted));
+  }
+
+  private static CanonicalTriangles canonical(Counted counted) {
+    return CanonicalTriangles.of(counted.graph(), counted.triangles());
+  }
+}
@@ -0,0 +1,32 @@
+package app.tricount.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.tricount.Contraction")
+@Label("Contraction")
+@Category({"Triangle Counter", "Pipeline"})
+public final class ContractionEvent extends Event {
+  @Label("Engine")
+  public String engine;
+
+  @Label("Vertices Before")
+  public int verticesBefore;
+
+  @Label("Edges Before")
+  public int edgesBefore;
+
+  @Label("Vertices")
+  public int vertices;
+
+  @Label("Edges")
+  public int edges;
+
+  @Label("Angle Tolerance")
+  public double angleTolerance;
+
+  @Label("Cancelled")
+  public boolean cancelled;
+}
@@ -0,0 +1,29 @@
+package app.tricount.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.tricount.Enumeration")
+@Label("Triangle Enumeration")
+@Category({"Triangle Counter", "Pipeline"})
+public final class EnumerationEvent extends Event {
+  @Label("Engine")
+  public String engine;
+
+  @Label("Vertices")
+  public int vertices;
+
+  @Label("Edges")
+  public int edges;
+
+  @Label("Triangles")
+  public int triangles;
+
+  @Label("Coordinate Tolerance")
+  public double tolerance;
+
+  @Label("Cancelled")
+  public boolean cancelled;
+}
@@ -0,0 +1,25 @@
+package app.tricount.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.tricount.Load")
+@Label("Project Load")
+@Category({"Triangle Counter", "Pipeline"})
+public final class LoadEvent extends Event {
+  @Label("Source")
+  public String source;
+
+  @Label("Size")
+  @DataAmount
+  public long bytes;
+
+  @Label("Segments")
+  public int segments;
+
+  @Label("Coordinate Tolerance")
+  public double tolerance;
+}
@@ -0,0 +1,25 @@
+package app.tricount.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.tricount.Noding")
+@Label("Noding")
+@Category({"Triangle Counter", "Pipeline"})
+public final class NodingEvent extends Event {
+  @Label("Input Segments")
+  public int inputSegments;
+
+  @Label("Dropped Segments")
+  @Description("Zero-length or duplicate segments skipped before noding")
+  public int droppedSegments;
+
+  @Label("Noded Segments")
+  public int nodedSegments;
+
+  @Label("Coordinate Tolerance")
+  public double tolerance;
+}
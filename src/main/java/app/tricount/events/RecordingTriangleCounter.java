@@ -0,0 +1,107 @@
+package app.tricount.events;
+
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.metrics.LastRun;
+import app.tricount.metrics.TriangleCounterMetrics;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+// Wraps an engine so its stages show up in flight recordings and in the JMX stage timings.
+public final class RecordingTriangleCounter implements TriangleCounter {
+  private final String engine;
+  private final TriangleCounter delegate;
+  private final TriangleCounterMetrics metrics = TriangleCounterMetrics.get();
+  // A run's stages execute on one thread, so the planar sizes wait here until its triangles are counted.
+  private final ThreadLocal<LastRun> planarized = new ThreadLocal<>();
+
+  public RecordingTriangleCounter(String engine, TriangleCounter delegate) {
+    this.engine = engine;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Graph buildPlanarGraph(SegmentStore segments, double coordTol) {
+    long started = System.nanoTime();
+    Graph planar = delegate.buildPlanarGraph(segments, coordTol);
+    metrics.stage("planarize", System.nanoTime() - started);
+    planarized.set(new LastRun(segments.size(), planar.vertexCount(), planar.edgeCount(), 0, 0, 0));
+    return planar;
+  }
+
+  @Override
+  public Graph contractStraightVertices(Graph graph, double angleTol) {
+    ContractionEvent event = new ContractionEvent();
+    event.begin();
+    long started = System.nanoTime();
+    Graph contracted;
+    try {
+      contracted = delegate.contractStraightVertices(graph, angleTol);
+    } catch (CancellationException e) {
+      planarized.remove();
+      event.cancelled = true;
+      commit(event, graph, graph, angleTol);
+      throw e;
+    }
+    metrics.stage("contract", System.nanoTime() - started);
+    commit(event, graph, contracted, angleTol);
+    return contracted;
+  }
+
+  @Override
+  public List<int[]> triangles(Graph graph) {
+    EnumerationEvent event = new EnumerationEvent();
+    event.begin();
+    long started = System.nanoTime();
+    List<int[]> triangles;
+    try {
+      triangles = delegate.triangles(graph);
+    } catch (CancellationException e) {
+      planarized.remove();
+      event.cancelled = true;
+      commit(event, graph, 0);
+      throw e;
+    }
+    metrics.stage("triangles", System.nanoTime() - started);
+    LastRun planar = planarized.get();
+    planarized.remove();
+    if (planar == null) {
+      planar = LastRun.NONE;
+    }
+    metrics.counted(new LastRun(
+        planar.segments(),
+        planar.planarVertices(),
+        planar.planarEdges(),
+        graph.vertexCount(),
+        graph.edgeCount(),
+        triangles.size()));
+    commit(event, graph, triangles.size());
+    return triangles;
+  }
+
+  private void commit(ContractionEvent event, Graph before, Graph after, double angleTol) {
+    if (!event.shouldCommit()) {
+      return;
+    }
+    event.engine = engine;
+    event.verticesBefore = before.vertexCount();
+    event.edgesBefore = before.edgeCount();
+    event.vertices = after.vertexCount();
+    event.edges = after.edgeCount();
+    event.angleTolerance = angleTol;
+    event.commit();
+  }
+
+  private void commit(EnumerationEvent event, Graph graph, int triangles) {
+    if (!event.shouldCommit()) {
+      return;
+    }
+    event.engine = engine;
+    event.vertices = graph.vertexCount();
+    event.edges = graph.edgeCount();
+    event.triangles = triangles;
+    event.tolerance = graph.coordinateTolerance();
+    event.commit();
+  }
+}
@@ -0,0 +1,31 @@
+package app.tricount.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.tricount.Recount")
+@Label("Watch Recount")
+@Category({"Triangle Counter", "Watch"})
+public final class RecountEvent extends Event {
+  @Label("File")
+  public String file;
+
+  @Label("Geometry Unchanged")
+  @Description("Geometry and tolerance matched the last successful count, so no stage ran")
+  public boolean unchanged;
+
+  @Label("Added Segments")
+  public int added;
+
+  @Label("Removed Segments")
+  public int removed;
+
+  @Label("Segments")
+  public int segments;
+
+  @Label("Triangles")
+  public int triangles;
+}
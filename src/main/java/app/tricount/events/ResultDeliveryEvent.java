@@ -0,0 +1,40 @@
+package app.tricount.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("app.tricount.ResultDelivery")
+@Label("Result Delivery")
+@Description("One background recount in the editor, from start of work to hand-off to the UI thread")
+@Category({"Triangle Counter", "UI"})
+public final class ResultDeliveryEvent extends Event {
+  @Label("Run")
+  public long run;
+
+  @Label("Status")
+  @Description("delivered, superseded, cancelled or failed")
+  public String status;
+
+  @Label("Queued")
+  @Timespan(Timespan.NANOSECONDS)
+  public long queued;
+
+  @Label("Segments")
+  public int segments;
+
+  @Label("Vertices")
+  public int vertices;
+
+  @Label("Triangles")
+  public int triangles;
+
+  @Label("Coordinate Tolerance")
+  public double coordinateTolerance;
+
+  @Label("Angle Tolerance")
+  public double angleTolerance;
+}
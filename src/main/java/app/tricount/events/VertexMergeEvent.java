@@ -0,0 +1,28 @@
+package app.tricount.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.tricount.VertexMerge")
+@Label("Vertex Merge")
+@Category({"Triangle Counter", "Pipeline"})
+public final class VertexMergeEvent extends Event {
+  @Label("Lookups")
+  public int lookups;
+
+  @Label("Merged")
+  @Description("Lookups answered by an existing vertex within tolerance")
+  public int merged;
+
+  @Label("Vertices")
+  public int vertices;
+
+  @Label("Edges")
+  public int edges;
+
+  @Label("Coordinate Tolerance")
+  public double tolerance;
+}
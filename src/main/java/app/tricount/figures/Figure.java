@@ -0,0 +1,13 @@
+package app.tricount.figures;
+
+import app.tricount.geometry.Segment;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// The expected count is computed on demand: the random family brute-forces every segment triple.
+public record Figure(
+    String family, int size, long seed, double tolerance, List<Segment> segments, LongSupplier expected) {
+  public long triangles() {
+    return expected.getAsLong();
+  }
+}
@@ -0,0 +1,235 @@
+package app.tricount.figures;
+
+import app.tricount.geometry.Segment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class FigureGenerators {
+  public static final List<String> FAMILIES =
+      List.of("grid", "subdivision", "fan", "random", "hatching", "near-coincident");
+
+  private static final double DEFAULT_TOLERANCE = 1e-6;
+  private static final double MERGE_TOLERANCE = 1e-3;
+  private static final double RANDOM_EXTENT = 1000d;
+
+  private FigureGenerators() {}
+
+  public static Figure generate(String family, int size, long seed) {
+    return switch (family) {
+      case "grid" -> grid(size);
+      case "subdivision" -> subdivision(size);
+      case "fan" -> fan(size + 1, 1 + size / 4);
+      case "random" -> randomLines(size, seed);
+      case "hatching" -> hatching(size, seed);
+      case "near-coincident" -> nearCoincident(size, seed);
+      default -> throw new IllegalArgumentException("Unknown figure family: " + family);
+    };
+  }
+
+  // n x n square grid drawn as full lines, plus every diagonal of slope 1.
+  public static Figure grid(int n) {
+    requirePositive(n);
+    List<Segment> segments = new ArrayList<>();
+    for (int i = 0; i <= n; i++) {
+      segments.add(new Segment(0, i, n, i, "h" + i));
+      segments.add(new Segment(i, 0, i, n, "v" + i));
+    }
+    for (int c = -(n - 1); c <= n - 1; c++) {
+      double x1 = Math.max(0, -c);
+      double x2 = Math.min(n, n - c);
+      segments.add(new Segment(x1, x1 + c, x2, x2 + c, "d" + (c + n)));
+    }
+    long sum = 0;
+    for (long m = 1; m <= n; m++) {
+      sum += m * m;
+    }
+    long count = 2 * sum;
+    return new Figure("grid", n, 0, DEFAULT_TOLERANCE, segments, () -> count);
+  }
+
+  // Right isosceles triangle with legs n cut into n^2 unit triangles by x = a, y = b and x + y = c.
+  public static Figure subdivision(int n) {
+    requirePositive(n);
+    return new Figure(
+        "subdivision", n, 0, DEFAULT_TOLERANCE, subdivisionSegments(n, null, 0), () -> subdivisionCount(n));
+  }
+
+  // Endpoints of every chord of the subdivision moved by less than a quarter of the merge tolerance:
+  // chords overshoot the lines they end on and are nudged sideways, so corners only meet after merging.
+  public static Figure nearCoincident(int n, long seed) {
+    requirePositive(n);
+    List<Segment> segments = subdivisionSegments(n, new Random(seed), MERGE_TOLERANCE / 4);
+    return new Figure("near-coincident", n, seed, MERGE_TOLERANCE, segments, () -> subdivisionCount(n));
+  }
+
+  // Rays from one apex to a shared base, crossed by horizontal lines; every ray pair and line bound a triangle.
+  public static Figure fan(int rays, int lines) {
+    if (rays < 2 || lines < 1) {
+      throw new IllegalArgumentException("A fan needs at least two rays and one crossing line");
+    }
+    List<Segment> segments = new ArrayList<>();
+    double height = rays;
+    double half = (rays - 1) / 2d;
+    for (int i = 0; i < rays; i++) {
+      segments.add(new Segment(0, height, i - half, 0, "ray" + i));
+    }
+    for (int j = 0; j < lines; j++) {
+      double y = height * j / lines;
+      double reach = half * (height - y) / height + 0.5;
+      segments.add(new Segment(-reach, y, reach, y, "line" + j));
+    }
+    long pairs = (long) rays * (rays - 1) / 2;
+    long count = pairs * lines;
+    return new Figure("fan", rays, 0, DEFAULT_TOLERANCE, segments, () -> count);
+  }
+
+  // Chords between random points on two different sides of a square; the count is a brute-force check
+  // of every segment triple, which is exact as long as no three chords meet in a point. It is only run
+  // when the expected count is asked for.
+  public static Figure randomLines(int n, long seed) {
+    requirePositive(n);
+    Random random = new Random(seed);
+    List<Segment> segments = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      int first = random.nextInt(4);
+      int second = (first + 1 + random.nextInt(3)) % 4;
+      double[] a = boundaryPoint(first, random.nextDouble());
+      double[] b = boundaryPoint(second, random.nextDouble());
+      segments.add(new Segment(a[0], a[1], b[0], b[1], "r" + i));
+    }
+    return new Figure(
+        "random", n, seed, DEFAULT_TOLERANCE, segments, () -> bruteForceCount(segments, DEFAULT_TOLERANCE));
+  }
+
+  // n almost parallel hatch lines between two rails, cut by one diagonal: each hatch line closes one
+  // triangle against each rail.
+  public static Figure hatching(int n, long seed) {
+    requirePositive(n);
+    Random random = new Random(seed);
+    double width = n + 1;
+    double height = n + 1;
+    List<Segment> segments = new ArrayList<>();
+    segments.add(new Segment(-1, 0, width + 1, 0, "bottom"));
+    segments.add(new Segment(-1, height, width + 1, height, "top"));
+    double overshoot = 0.5 / height;
+    segments.add(new Segment(
+        -width * overshoot, -height * overshoot, width * (1 + overshoot), height * (1 + overshoot), "diagonal"));
+    for (int i = 0; i < n; i++) {
+      double bottom = i + 1 + (random.nextDouble() - 0.5) * 0.2;
+      double top = i + 1 + (random.nextDouble() - 0.5) * 0.2;
+      double slope = (top - bottom) / height;
+      segments.add(new Segment(bottom - slope, -1, top + slope, height + 1, "hatch" + i));
+    }
+    return new Figure("hatching", n, seed, DEFAULT_TOLERANCE, segments, () -> 2L * n);
+  }
+
+  // O(n^3) time but O(n) memory: intersections with segment i are cached per row, the rest are recomputed.
+  public static long bruteForceCount(List<Segment> segments, double tolerance) {
+    int n = segments.size();
+    double[][] row = new double[n][];
+    long count = 0;
+    for (int i = 0; i < n; i++) {
+      for (int k = i + 1; k < n; k++) {
+        row[k] = intersection(segments.get(i), segments.get(k));
+      }
+      for (int j = i + 1; j < n; j++) {
+        double[] a = row[j];
+        if (a == null) {
+          continue;
+        }
+        for (int k = j + 1; k < n; k++) {
+          double[] b = row[k];
+          if (b == null) {
+            continue;
+          }
+          double[] c = intersection(segments.get(j), segments.get(k));
+          if (c == null) {
+            continue;
+          }
+          double area = Math.abs((b[0] - a[0]) * (c[1] - a[1]) - (b[1] - a[1]) * (c[0] - a[0])) * 0.5;
+          if (area > tolerance) {
+            count++;
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  private static List<Segment> subdivisionSegments(int n, Random random, double jitter) {
+    List<Segment> segments = new ArrayList<>();
+    for (int a = 0; a < n; a++) {
+      segments.add(perturb(a, 0, a, n - a, "x" + a, random, jitter));
+      segments.add(perturb(0, a, n - a, a, "y" + a, random, jitter));
+    }
+    for (int c = 1; c <= n; c++) {
+      segments.add(perturb(c, 0, 0, c, "s" + c, random, jitter));
+    }
+    return segments;
+  }
+
+  private static Segment perturb(double x1, double y1, double x2, double y2, String id, Random random, double jitter) {
+    if (random == null) {
+      return new Segment(x1, y1, x2, y2, id);
+    }
+    double length = Math.hypot(x2 - x1, y2 - y1);
+    double dx = (x2 - x1) / length;
+    double dy = (y2 - y1) / length;
+    double startOut = jitter * (0.5 + 0.5 * random.nextDouble());
+    double endOut = jitter * (0.5 + 0.5 * random.nextDouble());
+    double startSide = jitter * 0.5 * (random.nextDouble() - 0.5);
+    double endSide = jitter * 0.5 * (random.nextDouble() - 0.5);
+    return new Segment(
+        x1 - dx * startOut - dy * startSide,
+        y1 - dy * startOut + dx * startSide,
+        x2 + dx * endOut - dy * endSide,
+        y2 + dy * endOut + dx * endSide,
+        id);
+  }
+
+  private static long subdivisionCount(int n) {
+    long upright = (long) (n + 2) * (n + 1) * n / 6;
+    long inverted = 0;
+    for (int k = 1; 2 * k <= n; k++) {
+      long m = n - 2L * k + 2;
+      inverted += m * (m - 1) / 2;
+    }
+    return upright + inverted;
+  }
+
+  private static double[] boundaryPoint(int side, double t) {
+    double v = t * RANDOM_EXTENT;
+    return switch (side) {
+      case 0 -> new double[] {v, 0};
+      case 1 -> new double[] {RANDOM_EXTENT, v};
+      case 2 -> new double[] {v, RANDOM_EXTENT};
+      default -> new double[] {0, v};
+    };
+  }
+
+  private static double[] intersection(Segment s, Segment t) {
+    double rx = s.x2() - s.x1();
+    double ry = s.y2() - s.y1();
+    double qx = t.x2() - t.x1();
+    double qy = t.y2() - t.y1();
+    double denom = rx * qy - ry * qx;
+    if (denom == 0) {
+      return null;
+    }
+    double px = t.x1() - s.x1();
+    double py = t.y1() - s.y1();
+    double u = (px * qy - py * qx) / denom;
+    double v = (px * ry - py * rx) / denom;
+    if (u <= 0 || u >= 1 || v <= 0 || v >= 1) {
+      return null;
+    }
+    return new double[] {s.x1() + u * rx, s.y1() + u * ry};
+  }
+
+  private static void requirePositive(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Figure size must be positive");
+    }
+  }
+}
@@ -1,10 +1,14 @@
 package app.tricount.geometry;
 
+import app.tricount.events.NodingEvent;
+import app.tricount.events.VertexMergeEvent;
 import app.tricount.graph.Graph;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import org.locationtech.jts.algorithm.RobustLineIntersector;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.noding.IntersectionAdder;
@@ -13,41 +17,58 @@ import org.locationtech.jts.noding.NodedSegmentString;
 
 public final class PlanarGraphBuilder {
   public Graph build(List<Segment> segments, double coordTol) {
+    return build(SegmentStore.of(segments), coordTol);
+  }
+
+  public Graph build(SegmentStore segments, double coordTol) {
     if (segments.isEmpty()) {
-      return new Graph(List.of(), List.of(), Map.of(), coordTol, List.of(), List.of());
+      return emptyGraph(coordTol);
     }
     double tolerance = coordTol > 0 ? coordTol : 1e-9;
+    NodingEvent noding = new NodingEvent();
+    noding.begin();
     List<NodedSegmentString> segmentStrings = new ArrayList<>();
     List<Coordinate[]> originalEndpoints = new ArrayList<>();
-    Map<String, SegmentCollector> collectors = new HashMap<>();
-    List<String> segmentOrder = new ArrayList<>();
-    for (Segment segment : segments) {
-      if (isZeroLength(segment, tolerance)) {
+    List<SegmentCollector> collectors = new ArrayList<>();
+    SegmentKeySet seen = new SegmentKeySet(tolerance, segments.size());
+    for (int i = 0; i < segments.size(); i++) {
+      double x1 = segments.x1(i);
+      double y1 = segments.y1(i);
+      double x2 = segments.x2(i);
+      double y2 = segments.y2(i);
+      if (isZeroLength(x1, y1, x2, y2, tolerance) || !seen.add(x1, y1, x2, y2)) {
         continue;
       }
-      Coordinate[] coords = new Coordinate[] {
-          new Coordinate(segment.x1(), segment.y1()),
-          new Coordinate(segment.x2(), segment.y2())
-      };
-      segmentStrings.add(new NodedSegmentString(coords, segment.id()));
+      Coordinate[] coords = new Coordinate[] {new Coordinate(x1, y1), new Coordinate(x2, y2)};
+      segmentStrings.add(new NodedSegmentString(coords, collectors.size()));
       originalEndpoints.add(coords);
-      collectors.put(segment.id(), new SegmentCollector(segment));
-      segmentOrder.add(segment.id());
+      collectors.add(new SegmentCollector(x1, y1, x2, y2));
     }
     if (segmentStrings.isEmpty()) {
-      return new Graph(List.of(), List.of(), Map.of(), tolerance, List.of(), List.of());
+      return emptyGraph(tolerance);
     }
+    checkCancelled();
     MCIndexNoder noder = new MCIndexNoder(new IntersectionAdder(new RobustLineIntersector()));
     noder.computeNodes(segmentStrings);
+    checkCancelled();
     List<NodedSegmentString> noded = new ArrayList<>();
     NodedSegmentString.getNodedSubstrings(segmentStrings, noded);
-    Map<Long, List<Integer>> vertexBuckets = new HashMap<>();
-    List<Graph.V> vertices = new ArrayList<>();
-    Map<Long, Graph.E> edgesByKey = new HashMap<>();
-    Map<Long, Integer> multiplicity = new HashMap<>();
+    if (noding.shouldCommit()) {
+      noding.inputSegments = segments.size();
+      noding.droppedSegments = segments.size() - segmentStrings.size();
+      noding.nodedSegments = noded.size();
+      noding.tolerance = tolerance;
+      noding.commit();
+    }
+    VertexMergeEvent merge = new VertexMergeEvent();
+    merge.begin();
+    VertexTable vertices = new VertexTable(tolerance);
+    Map<Long, Integer> edgeIndex = new HashMap<>();
+    IntList edgeEnds = new IntList();
+    IntList edgeCounts = new IntList();
     for (NodedSegmentString string : noded) {
-      String segmentId = (String) string.getData();
-      SegmentCollector collector = collectors.get(segmentId);
+      checkCancelled();
+      SegmentCollector collector = collectors.get((Integer) string.getData());
       Coordinate[] coords = string.getCoordinates();
       for (int i = 1; i < coords.length; i++) {
         Coordinate a = coords[i - 1];
@@ -55,110 +76,201 @@ public final class PlanarGraphBuilder {
         if (isZeroLength(a, b, tolerance)) {
           continue;
         }
-        int va = resolveVertex(a, tolerance, vertexBuckets, vertices);
-        int vb = resolveVertex(b, tolerance, vertexBuckets, vertices);
+        int va = vertices.resolve(a);
+        int vb = vertices.resolve(b);
         if (va == vb) {
           continue;
         }
         int u = Math.min(va, vb);
         int v = Math.max(va, vb);
-        long key = edgeKey(u, v);
-        edgesByKey.computeIfAbsent(key, k -> new Graph.E(u, v));
-        multiplicity.merge(key, 1, Integer::sum);
-        if (collector != null) {
-          collector.addVertex(va, a);
-          collector.addVertex(vb, b);
+        Integer edge = edgeIndex.putIfAbsent(edgeKey(u, v), edgeCounts.size());
+        if (edge == null) {
+          edgeEnds.add(u);
+          edgeEnds.add(v);
+          edgeCounts.add(1);
+        } else {
+          edgeCounts.increment(edge);
         }
+        collector.addVertex(va, a);
+        collector.addVertex(vb, b);
       }
     }
-    List<Graph.E> edges = new ArrayList<>(edgesByKey.values());
-    List<Graph.E> segmentEdges = new ArrayList<>();
+    IntList segmentEnds = new IntList();
+    checkCancelled();
     for (Coordinate[] endpoints : originalEndpoints) {
       Coordinate a = endpoints[0];
       Coordinate b = endpoints[1];
       if (isZeroLength(a, b, tolerance)) {
         continue;
       }
-      int va = findVertex(a, tolerance, vertexBuckets, vertices);
-      int vb = findVertex(b, tolerance, vertexBuckets, vertices);
+      int va = vertices.find(a);
+      int vb = vertices.find(b);
       if (va == vb) {
         continue;
       }
-      segmentEdges.add(new Graph.E(va, vb));
-    }
-    List<List<Integer>> segmentPaths = new ArrayList<>();
-    for (String id : segmentOrder) {
-      SegmentCollector collector = collectors.get(id);
-      if (collector != null) {
-        segmentPaths.add(collector.build());
-      } else {
-        segmentPaths.add(List.of());
-      }
+      segmentEnds.add(va);
+      segmentEnds.add(vb);
+    }
+    if (merge.shouldCommit()) {
+      merge.lookups = vertices.lookups;
+      merge.merged = vertices.hits;
+      merge.vertices = vertices.size;
+      merge.edges = edgeCounts.size();
+      merge.tolerance = tolerance;
+      merge.commit();
+    }
+    int[] pathOffsets = new int[collectors.size() + 1];
+    IntList pathVertices = new IntList();
+    for (int i = 0; i < collectors.size(); i++) {
+      collectors.get(i).appendPath(pathVertices);
+      pathOffsets[i + 1] = pathVertices.size();
     }
-    return new Graph(vertices, edges, multiplicity, tolerance, segmentEdges, segmentPaths);
+    return Graph.adopt(
+        vertices.xs(),
+        vertices.ys(),
+        edgeEnds.toArray(),
+        edgeCounts.toArray(),
+        tolerance,
+        segmentEnds.toArray(),
+        pathOffsets,
+        pathVertices.toArray());
   }
 
-  private boolean isZeroLength(Segment segment, double tol) {
-    double dx = segment.x2() - segment.x1();
-    double dy = segment.y2() - segment.y1();
-    return Math.hypot(dx, dy) <= tol;
+  // JTS noding itself cannot be interrupted, so cancellation is honoured on either side of it and
+  // between noded substrings during the merge.
+  private void checkCancelled() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Planar graph build cancelled");
+    }
+  }
+
+  private boolean isZeroLength(double x1, double y1, double x2, double y2, double tol) {
+    return Math.hypot(x2 - x1, y2 - y1) <= tol;
   }
 
   private boolean isZeroLength(Coordinate a, Coordinate b, double tol) {
     return a.distance(b) <= tol;
   }
 
-  private int resolveVertex(Coordinate coordinate, double tol, Map<Long, List<Integer>> buckets, List<Graph.V> vertices) {
-    long key = coordinateKey(coordinate, tol);
-    List<Integer> ids = buckets.computeIfAbsent(key, k -> new ArrayList<>());
-    for (int id : ids) {
-      Graph.V existing = vertices.get(id);
-      double dx = existing.x() - coordinate.getX();
-      double dy = existing.y() - coordinate.getY();
-      if (Math.hypot(dx, dy) <= tol) {
-        return id;
-      }
-    }
-    int id = vertices.size();
-    Graph.V vertex = new Graph.V(id, coordinate.getX(), coordinate.getY());
-    vertices.add(vertex);
-    ids.add(id);
-    return id;
+  private long edgeKey(int u, int v) {
+    return (((long) u) << 32) | (v & 0xffffffffL);
   }
 
-  private long coordinateKey(Coordinate coordinate, double tol) {
-    double scale = tol > 0 ? 1d / tol : 1e9;
-    long qx = Math.round(coordinate.getX() * scale);
-    long qy = Math.round(coordinate.getY() * scale);
-    return (qx << 32) ^ (qy & 0xffffffffL);
+  private Graph emptyGraph(double tolerance) {
+    return Graph.adopt(
+        new double[0], new double[0], new int[0], new int[0], tolerance, new int[0], new int[0], new int[0]);
   }
 
-  private long edgeKey(int u, int v) {
-    return (((long) u) << 32) | (v & 0xffffffffL);
-  }
+  private static final class VertexTable {
+    private final double tolerance;
+    private final double scale;
+    private final Map<Long, List<Integer>> buckets = new HashMap<>();
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private int size;
+    private int lookups;
+    private int hits;
+
+    VertexTable(double tolerance) {
+      this.tolerance = tolerance;
+      this.scale = tolerance > 0 ? 1d / tolerance : 1e9;
+    }
+
+    int resolve(Coordinate coordinate) {
+      long key = coordinateKey(coordinate);
+      List<Integer> ids = buckets.computeIfAbsent(key, k -> new ArrayList<>());
+      int existing = match(ids, coordinate);
+      lookups++;
+      if (existing >= 0) {
+        hits++;
+        return existing;
+      }
+      if (size == xs.length) {
+        xs = Arrays.copyOf(xs, size * 2);
+        ys = Arrays.copyOf(ys, size * 2);
+      }
+      int id = size++;
+      xs[id] = coordinate.getX();
+      ys[id] = coordinate.getY();
+      ids.add(id);
+      return id;
+    }
 
-  private int findVertex(Coordinate coordinate, double tol, Map<Long, List<Integer>> buckets, List<Graph.V> vertices) {
-    long key = coordinateKey(coordinate, tol);
-    List<Integer> ids = buckets.get(key);
-    if (ids != null) {
+    int find(Coordinate coordinate) {
+      List<Integer> ids = buckets.get(coordinateKey(coordinate));
+      if (ids != null) {
+        int existing = match(ids, coordinate);
+        if (existing >= 0) {
+          lookups++;
+          hits++;
+          return existing;
+        }
+      }
+      return resolve(coordinate);
+    }
+
+    double[] xs() {
+      return Arrays.copyOf(xs, size);
+    }
+
+    double[] ys() {
+      return Arrays.copyOf(ys, size);
+    }
+
+    private int match(List<Integer> ids, Coordinate coordinate) {
       for (int id : ids) {
-        Graph.V existing = vertices.get(id);
-        double dx = existing.x() - coordinate.getX();
-        double dy = existing.y() - coordinate.getY();
-        if (Math.hypot(dx, dy) <= tol) {
+        double dx = xs[id] - coordinate.getX();
+        double dy = ys[id] - coordinate.getY();
+        if (Math.hypot(dx, dy) <= tolerance) {
           return id;
         }
       }
+      return -1;
+    }
+
+    private long coordinateKey(Coordinate coordinate) {
+      long qx = Math.round(coordinate.getX() * scale);
+      long qy = Math.round(coordinate.getY() * scale);
+      return (qx << 32) ^ (qy & 0xffffffffL);
+    }
+  }
+
+  private static final class IntList {
+    private int[] values = new int[64];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    void increment(int index) {
+      values[index]++;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
     }
-    return resolveVertex(coordinate, tol, buckets, vertices);
   }
 
   private static final class SegmentCollector {
-    private final Segment segment;
+    private final double x1;
+    private final double y1;
+    private final double x2;
+    private final double y2;
     private final Map<Integer, Double> params = new HashMap<>();
 
-    SegmentCollector(Segment segment) {
-      this.segment = segment;
+    SegmentCollector(double x1, double y1, double x2, double y2) {
+      this.x1 = x1;
+      this.y1 = y1;
+      this.x2 = x2;
+      this.y2 = y2;
     }
 
     void addVertex(int vertexId, Coordinate coordinate) {
@@ -166,22 +278,21 @@ public final class PlanarGraphBuilder {
       params.merge(vertexId, t, Math::min);
     }
 
-    List<Integer> build() {
-      return params.entrySet().stream()
+    void appendPath(IntList path) {
+      params.entrySet().stream()
           .sorted(Map.Entry.comparingByValue())
-          .map(Map.Entry::getKey)
-          .toList();
+          .forEach(entry -> path.add(entry.getKey()));
     }
 
     private double parameter(Coordinate coordinate) {
-      double dx = segment.x2() - segment.x1();
-      double dy = segment.y2() - segment.y1();
+      double dx = x2 - x1;
+      double dy = y2 - y1;
       double len2 = dx * dx + dy * dy;
       if (len2 <= 0) {
         return 0d;
       }
-      double px = coordinate.getX() - segment.x1();
-      double py = coordinate.getY() - segment.y1();
+      double px = coordinate.getX() - x1;
+      double py = coordinate.getY() - y1;
       double t = (px * dx + py * dy) / len2;
       if (t < 0d) {
         return 0d;
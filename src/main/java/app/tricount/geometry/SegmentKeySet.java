@@ -0,0 +1,108 @@
+package app.tricount.geometry;
+
+public final class SegmentKeySet {
+  private static final int KEY_LONGS = 4;
+  private static final int MIN_CAPACITY = 16;
+
+  private final double scale;
+  private long[] keys;
+  private boolean[] used;
+  private int mask;
+  private int size;
+  private int resizeAt;
+
+  public SegmentKeySet(double tolerance) {
+    this(tolerance, MIN_CAPACITY);
+  }
+
+  public SegmentKeySet(double tolerance, int expectedSize) {
+    this.scale = tolerance > 0 ? 1d / tolerance : 1e9;
+    int capacity = MIN_CAPACITY;
+    while (capacity < Math.max(expectedSize, 1) * 2L && capacity < (1 << 28)) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  public boolean add(Segment segment) {
+    return add(segment.x1(), segment.y1(), segment.x2(), segment.y2());
+  }
+
+  public boolean add(double x1, double y1, double x2, double y2) {
+    long ax = Math.round(x1 * scale);
+    long ay = Math.round(y1 * scale);
+    long bx = Math.round(x2 * scale);
+    long by = Math.round(y2 * scale);
+    if (ax > bx || (ax == bx && ay > by)) {
+      long tx = ax;
+      long ty = ay;
+      ax = bx;
+      ay = by;
+      bx = tx;
+      by = ty;
+    }
+    int slot = hash(ax, ay, bx, by) & mask;
+    while (used[slot]) {
+      int base = slot * KEY_LONGS;
+      if (keys[base] == ax && keys[base + 1] == ay && keys[base + 2] == bx && keys[base + 3] == by) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    store(slot, ax, ay, bx, by);
+    if (++size > resizeAt) {
+      grow();
+    }
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void store(int slot, long ax, long ay, long bx, long by) {
+    int base = slot * KEY_LONGS;
+    keys[base] = ax;
+    keys[base + 1] = ay;
+    keys[base + 2] = bx;
+    keys[base + 3] = by;
+    used[slot] = true;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    boolean[] oldUsed = used;
+    allocate(oldUsed.length << 1);
+    for (int i = 0; i < oldUsed.length; i++) {
+      if (!oldUsed[i]) {
+        continue;
+      }
+      int base = i * KEY_LONGS;
+      long ax = oldKeys[base];
+      long ay = oldKeys[base + 1];
+      long bx = oldKeys[base + 2];
+      long by = oldKeys[base + 3];
+      int slot = hash(ax, ay, bx, by) & mask;
+      while (used[slot]) {
+        slot = (slot + 1) & mask;
+      }
+      store(slot, ax, ay, bx, by);
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity * KEY_LONGS];
+    used = new boolean[capacity];
+    mask = capacity - 1;
+    resizeAt = capacity / 2;
+  }
+
+  private static int hash(long ax, long ay, long bx, long by) {
+    long h = ax * 0x9E3779B97F4A7C15L;
+    h = (h ^ ay) * 0xBF58476D1CE4E5B9L;
+    h = (h ^ bx) * 0x94D049BB133111EBL;
+    h = (h ^ by) * 0x9E3779B97F4A7C15L;
+    h ^= h >>> 31;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -0,0 +1,235 @@
+package app.tricount.geometry;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public final class SegmentStore {
+  private static final int MIN_CAPACITY = 16;
+
+  private double[] x1;
+  private double[] y1;
+  private double[] x2;
+  private double[] y2;
+  // Ids are refs into an append-only name table, so repeated names are stored once. Snapshots share the
+  // table: the owner only appends past every snapshot's nameCount, or starts a new table on clear().
+  private int[] idRefs;
+  private String[] names;
+  private int nameCount;
+  private final Map<String, Integer> nameIndex;
+  private int size;
+  private boolean shared;
+  private final boolean frozen;
+  private final List<Segment> view = new AbstractList<>() {
+    @Override
+    public Segment get(int index) {
+      return SegmentStore.this.get(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+
+  public SegmentStore() {
+    this(MIN_CAPACITY);
+  }
+
+  public SegmentStore(int capacity) {
+    allocate(Math.max(capacity, MIN_CAPACITY));
+    names = new String[MIN_CAPACITY];
+    nameIndex = new HashMap<>();
+    frozen = false;
+  }
+
+  private SegmentStore(SegmentStore source) {
+    x1 = source.x1;
+    y1 = source.y1;
+    x2 = source.x2;
+    y2 = source.y2;
+    idRefs = source.idRefs;
+    names = source.names;
+    nameCount = source.nameCount;
+    nameIndex = null;
+    size = source.size;
+    frozen = true;
+  }
+
+  public static SegmentStore of(Collection<Segment> segments) {
+    SegmentStore store = new SegmentStore(segments.size());
+    for (Segment segment : segments) {
+      store.add(segment);
+    }
+    return store;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public double x1(int index) {
+    return x1[checkIndex(index)];
+  }
+
+  public double y1(int index) {
+    return y1[checkIndex(index)];
+  }
+
+  public double x2(int index) {
+    return x2[checkIndex(index)];
+  }
+
+  public double y2(int index) {
+    return y2[checkIndex(index)];
+  }
+
+  public String id(int index) {
+    return names[idRefs[checkIndex(index)]];
+  }
+
+  public Segment get(int index) {
+    checkIndex(index);
+    return new Segment(x1[index], y1[index], x2[index], y2[index], names[idRefs[index]]);
+  }
+
+  public List<Segment> asList() {
+    return view;
+  }
+
+  public SegmentStore snapshot() {
+    if (frozen) {
+      return this;
+    }
+    shared = true;
+    return new SegmentStore(this);
+  }
+
+  public void add(Segment segment) {
+    add(segment.x1(), segment.y1(), segment.x2(), segment.y2(), segment.id());
+  }
+
+  public void add(double sx1, double sy1, double sx2, double sy2, String id) {
+    insert(size, sx1, sy1, sx2, sy2, id);
+  }
+
+  public void insert(int index, Segment segment) {
+    insert(index, segment.x1(), segment.y1(), segment.x2(), segment.y2(), segment.id());
+  }
+
+  public void insert(int index, double sx1, double sy1, double sx2, double sy2, String id) {
+    checkMutable();
+    Objects.checkIndex(index, size + 1);
+    Objects.requireNonNull(id, "id");
+    if (size == x1.length) {
+      grow(size * 2);
+    } else if (index < size) {
+      unshare();
+    }
+    if (index < size) {
+      shift(index, index + 1, size - index);
+    }
+    x1[index] = sx1;
+    y1[index] = sy1;
+    x2[index] = sx2;
+    y2[index] = sy2;
+    idRefs[index] = nameRef(id);
+    size++;
+  }
+
+  public void removeRange(int from, int to) {
+    checkMutable();
+    Objects.checkFromToIndex(from, to, size);
+    if (from == to) {
+      return;
+    }
+    if (to == size && !shared) {
+      size = from;
+      return;
+    }
+    unshare();
+    shift(to, from, size - to);
+    size -= to - from;
+  }
+
+  public void setAll(Collection<Segment> segments) {
+    clear();
+    for (Segment segment : segments) {
+      add(segment);
+    }
+  }
+
+  public void clear() {
+    checkMutable();
+    if (shared) {
+      allocate(x1.length);
+      shared = false;
+    }
+    names = new String[MIN_CAPACITY];
+    nameCount = 0;
+    nameIndex.clear();
+    size = 0;
+  }
+
+  private void shift(int from, int to, int length) {
+    System.arraycopy(x1, from, x1, to, length);
+    System.arraycopy(y1, from, y1, to, length);
+    System.arraycopy(x2, from, x2, to, length);
+    System.arraycopy(y2, from, y2, to, length);
+    System.arraycopy(idRefs, from, idRefs, to, length);
+  }
+
+  private void unshare() {
+    if (shared) {
+      grow(x1.length);
+    }
+  }
+
+  private void grow(int capacity) {
+    x1 = Arrays.copyOf(x1, capacity);
+    y1 = Arrays.copyOf(y1, capacity);
+    x2 = Arrays.copyOf(x2, capacity);
+    y2 = Arrays.copyOf(y2, capacity);
+    idRefs = Arrays.copyOf(idRefs, capacity);
+    shared = false;
+  }
+
+  private void allocate(int capacity) {
+    x1 = new double[capacity];
+    y1 = new double[capacity];
+    x2 = new double[capacity];
+    y2 = new double[capacity];
+    idRefs = new int[capacity];
+  }
+
+  private int nameRef(String id) {
+    Integer ref = nameIndex.get(id);
+    if (ref != null) {
+      return ref;
+    }
+    if (nameCount == names.length) {
+      names = Arrays.copyOf(names, nameCount * 2);
+    }
+    names[nameCount] = id;
+    nameIndex.put(id, nameCount);
+    return nameCount++;
+  }
+
+  private void checkMutable() {
+    if (frozen) {
+      throw new UnsupportedOperationException("Segment snapshots are read-only");
+    }
+  }
+
+  private int checkIndex(int index) {
+    return Objects.checkIndex(index, size);
+  }
+}
@@ -1,8 +1,9 @@
 package app.tricount.graph;
 
 import app.tricount.geometry.PlanarGraphBuilder;
-import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -10,33 +11,35 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 public final class DefaultTriangleCounter implements TriangleCounter {
   private final PlanarGraphBuilder builder = new PlanarGraphBuilder();
 
   @Override
-  public Graph buildPlanarGraph(List<Segment> segments, double coordTol) {
+  public Graph buildPlanarGraph(SegmentStore segments, double coordTol) {
     return builder.build(segments, coordTol);
   }
 
   @Override
   public Graph contractStraightVertices(Graph graph, double angleTol) {
-    int n = graph.vertices().size();
-    if (n == 0 || graph.edges().isEmpty()) {
+    int n = graph.vertexCount();
+    if (n == 0 || graph.edgeCount() == 0) {
       return graph;
     }
     List<Set<Integer>> adjacency = new ArrayList<>(n);
     for (int i = 0; i < n; i++) {
       adjacency.add(new LinkedHashSet<>());
     }
-    for (Graph.E edge : graph.edges()) {
-      adjacency.get(edge.u()).add(edge.v());
-      adjacency.get(edge.v()).add(edge.u());
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      adjacency.get(graph.edgeU(e)).add(graph.edgeV(e));
+      adjacency.get(graph.edgeV(e)).add(graph.edgeU(e));
     }
     boolean[] removed = new boolean[n];
     boolean changed = true;
     double coordTol = graph.coordinateTolerance();
     while (changed) {
+      checkCancelled();
       changed = false;
       for (int v = 0; v < n; v++) {
         if (removed[v]) {
@@ -50,10 +53,7 @@ public final class DefaultTriangleCounter implements TriangleCounter {
         if (pair[0] == pair[1] || removed[pair[0]] || removed[pair[1]]) {
           continue;
         }
-        Graph.V a = graph.vertices().get(pair[0]);
-        Graph.V b = graph.vertices().get(v);
-        Graph.V c = graph.vertices().get(pair[1]);
-        if (!isCollinear(a, b, c, angleTol, coordTol)) {
+        if (!isCollinear(graph, pair[0], v, pair[1], angleTol, coordTol)) {
           continue;
         }
         removeVertex(v, pair[0], pair[1], adjacency, removed);
@@ -61,19 +61,20 @@ public final class DefaultTriangleCounter implements TriangleCounter {
       }
     }
     int[] remap = new int[n];
-    List<Graph.V> vertices = new ArrayList<>();
+    int kept = 0;
     for (int i = 0; i < n; i++) {
-      if (removed[i]) {
-        remap[i] = -1;
-        continue;
+      remap[i] = removed[i] ? -1 : kept++;
+    }
+    double[] xs = new double[kept];
+    double[] ys = new double[kept];
+    for (int i = 0; i < n; i++) {
+      if (remap[i] >= 0) {
+        xs[remap[i]] = graph.x(i);
+        ys[remap[i]] = graph.y(i);
       }
-      Graph.V original = graph.vertices().get(i);
-      int id = vertices.size();
-      vertices.add(new Graph.V(id, original.x(), original.y()));
-      remap[i] = id;
     }
-    Map<Long, Integer> multiplicity = new HashMap<>();
-    List<Graph.E> edges = new ArrayList<>();
+    int[] edges = new int[graph.edgeCount() * 2];
+    int edgeSlots = 0;
     for (int u = 0; u < n; u++) {
       if (removed[u]) {
         continue;
@@ -87,35 +88,48 @@ public final class DefaultTriangleCounter implements TriangleCounter {
         if (nu < 0 || nv < 0 || nu >= nv) {
           continue;
         }
-        long key = edgeKey(nu, nv);
-        edges.add(new Graph.E(nu, nv));
-        multiplicity.merge(key, 1, Integer::sum);
+        if (edgeSlots == edges.length) {
+          edges = Arrays.copyOf(edges, edges.length * 2 + 2);
+        }
+        edges[edgeSlots++] = nu;
+        edges[edgeSlots++] = nv;
       }
     }
-    Map<Long, Graph.E> segmentEdgeMap = new HashMap<>();
-    for (Graph.E edge : graph.segmentEdges()) {
-      int nu = remap[edge.u()];
-      int nv = remap[edge.v()];
+    Set<Long> seenSegmentEdges = new HashSet<>();
+    int[] segmentEdges = new int[graph.segmentEdgeCount() * 2];
+    int segmentSlots = 0;
+    for (int e = 0; e < graph.segmentEdgeCount(); e++) {
+      int nu = remap[graph.segmentEdgeU(e)];
+      int nv = remap[graph.segmentEdgeV(e)];
       if (nu < 0 || nv < 0 || nu == nv) {
         continue;
       }
-      long key = edgeKey(Math.min(nu, nv), Math.max(nu, nv));
-      segmentEdgeMap.putIfAbsent(key, new Graph.E(nu, nv));
+      if (seenSegmentEdges.add(edgeKey(Math.min(nu, nv), Math.max(nu, nv)))) {
+        segmentEdges[segmentSlots++] = nu;
+        segmentEdges[segmentSlots++] = nv;
+      }
     }
-    List<Graph.E> segmentEdges = new ArrayList<>(segmentEdgeMap.values());
-    return new Graph(vertices, edges, multiplicity, graph.coordinateTolerance(), segmentEdges, List.of());
+    return Graph.adopt(
+        xs,
+        ys,
+        Arrays.copyOf(edges, edgeSlots),
+        null,
+        graph.coordinateTolerance(),
+        Arrays.copyOf(segmentEdges, segmentSlots),
+        new int[0],
+        new int[0]);
   }
 
   @Override
   public List<int[]> triangles(Graph graph) {
-    if (graph.edges().isEmpty()) {
+    if (graph.edgeCount() == 0) {
       return List.of();
     }
     Map<Integer, List<Neighbor>> neighbors = buildSortedNeighbors(graph);
     Map<Long, Boolean> visited = new HashMap<>();
-    for (Graph.E edge : graph.edges()) {
-      visited.put(directedKey(edge.u(), edge.v()), false);
-      visited.put(directedKey(edge.v(), edge.u()), false);
+    for (int e = 0; e < graph.edgeCount(); e++) {
+      visited.put(directedKey(graph.edgeU(e), graph.edgeV(e)), false);
+      visited.put(directedKey(graph.edgeV(e), graph.edgeU(e)), false);
     }
     List<List<Integer>> interiorCandidates = new ArrayList<>();
     List<Integer> outerFace = null;
@@ -123,6 +137,7 @@ public final class DefaultTriangleCounter implements TriangleCounter {
     double outerAreaAbs = -1d;
     double tol = graph.coordinateTolerance();
     for (Map.Entry<Integer, List<Neighbor>> entry : neighbors.entrySet()) {
+      checkCancelled();
       int u = entry.getKey();
       for (Neighbor neighbor : entry.getValue()) {
         int v = neighbor.vertex();
@@ -174,7 +189,7 @@ public final class DefaultTriangleCounter implements TriangleCounter {
       }
     }
     List<int[]> results = new ArrayList<>();
-    Set<Long> seen = new HashSet<>();
+    TriangleKeySet seen = new TriangleKeySet(interiorCandidates.size() + 1);
     for (List<Integer> face : interiorCandidates) {
       int outerCount = 0;
       boolean allBoundary = true;
@@ -189,20 +204,19 @@ public final class DefaultTriangleCounter implements TriangleCounter {
         continue;
       }
       int[] tri = toArray(face);
-      long key = triangleKey(tri);
-      if (seen.add(key)) {
+      if (seen.add(tri)) {
         results.add(tri);
       }
     }
     if (simplifiedOuter != null) {
-      long key = triangleKey(simplifiedOuter);
-      if (seen.add(key)) {
+      if (seen.add(simplifiedOuter)) {
         results.add(simplifiedOuter);
       }
     }
     Map<Integer, Set<Integer>> segmentAdj = buildSegmentAdjacency(graph);
     double segmentTol = graph.coordinateTolerance();
     for (Map.Entry<Integer, Set<Integer>> entry : segmentAdj.entrySet()) {
+      checkCancelled();
       int u = entry.getKey();
       Set<Integer> neighborsU = entry.getValue();
       for (int v : neighborsU) {
@@ -220,8 +234,7 @@ public final class DefaultTriangleCounter implements TriangleCounter {
           if (!neighborsU.contains(w)) {
             continue;
           }
-          long key = triangleKey(u, v, w);
-          if (seen.contains(key)) {
+          if (seen.contains(u, v, w)) {
             continue;
           }
           if (!isNonDegenerate(graph, u, v, w, segmentTol)) {
@@ -236,7 +249,7 @@ public final class DefaultTriangleCounter implements TriangleCounter {
           }
           int[] tri = new int[] {u, v, w};
           results.add(tri);
-          seen.add(key);
+          seen.add(tri);
         }
       }
     }
@@ -252,11 +265,11 @@ public final class DefaultTriangleCounter implements TriangleCounter {
     removed[vertex] = true;
   }
 
-  private boolean isCollinear(Graph.V a, Graph.V b, Graph.V c, double angleTol, double coordTol) {
-    double ax = a.x() - b.x();
-    double ay = a.y() - b.y();
-    double bx = c.x() - b.x();
-    double by = c.y() - b.y();
+  private boolean isCollinear(Graph graph, int a, int b, int c, double angleTol, double coordTol) {
+    double ax = graph.x(a) - graph.x(b);
+    double ay = graph.y(a) - graph.y(b);
+    double bx = graph.x(c) - graph.x(b);
+    double by = graph.y(c) - graph.y(b);
     double normA = Math.hypot(ax, ay);
     double normB = Math.hypot(bx, by);
     if (normA <= coordTol || normB <= coordTol) {
@@ -283,19 +296,16 @@ public final class DefaultTriangleCounter implements TriangleCounter {
   }
 
   private Map<Integer, List<Neighbor>> buildSortedNeighbors(Graph graph) {
-    Map<Integer, Set<Integer>> adjacency = new HashMap<>();
-    for (Graph.E edge : graph.edges()) {
-      adjacency.computeIfAbsent(edge.u(), k -> new HashSet<>()).add(edge.v());
-      adjacency.computeIfAbsent(edge.v(), k -> new HashSet<>()).add(edge.u());
-    }
     Map<Integer, List<Neighbor>> neighbors = new HashMap<>();
-    for (Map.Entry<Integer, Set<Integer>> entry : adjacency.entrySet()) {
-      int u = entry.getKey();
-      Graph.V origin = graph.vertices().get(u);
-      List<Neighbor> list = new ArrayList<>();
-      for (int v : entry.getValue()) {
-        Graph.V dest = graph.vertices().get(v);
-        double angle = Math.atan2(dest.y() - origin.y(), dest.x() - origin.x());
+    for (int u = 0; u < graph.vertexCount(); u++) {
+      int degree = graph.degree(u);
+      if (degree == 0) {
+        continue;
+      }
+      List<Neighbor> list = new ArrayList<>(degree);
+      for (int k = 0; k < degree; k++) {
+        int v = graph.neighbor(u, k);
+        double angle = Math.atan2(graph.y(v) - graph.y(u), graph.x(v) - graph.x(u));
         list.add(new Neighbor(v, angle));
       }
       list.sort(Comparator.comparingDouble(Neighbor::angle));
@@ -357,9 +367,9 @@ public final class DefaultTriangleCounter implements TriangleCounter {
     double sum = 0d;
     int size = face.size();
     for (int i = 0; i < size; i++) {
-      Graph.V a = graph.vertices().get(face.get(i));
-      Graph.V b = graph.vertices().get(face.get((i + 1) % size));
-      sum += a.x() * b.y() - a.y() * b.x();
+      int a = face.get(i);
+      int b = face.get((i + 1) % size);
+      sum += graph.x(a) * graph.y(b) - graph.y(a) * graph.x(b);
     }
     return 0.5 * sum;
   }
@@ -386,7 +396,7 @@ public final class DefaultTriangleCounter implements TriangleCounter {
         int prev = vertices.get(prevIndex);
         int curr = vertices.get(i);
         int next = vertices.get(nextIndex);
-        if (collinear(graph.vertices().get(prev), graph.vertices().get(curr), graph.vertices().get(next), tol)) {
+        if (collinear(graph, prev, curr, next, tol)) {
           vertices.remove(i);
           changed = true;
           break;
@@ -399,16 +409,20 @@ public final class DefaultTriangleCounter implements TriangleCounter {
     return null;
   }
 
-  private boolean collinear(Graph.V a, Graph.V b, Graph.V c, double tol) {
-    double area2 = Math.abs((b.x() - a.x()) * (c.y() - a.y()) - (b.y() - a.y()) * (c.x() - a.x()));
+  private boolean collinear(Graph graph, int a, int b, int c, double tol) {
+    double area2 = Math.abs(
+        (graph.x(b) - graph.x(a)) * (graph.y(c) - graph.y(a))
+            - (graph.y(b) - graph.y(a)) * (graph.x(c) - graph.x(a)));
     return area2 <= tol;
   }
 
   private Map<Integer, Set<Integer>> buildSegmentAdjacency(Graph graph) {
     Map<Integer, Set<Integer>> adjacency = new HashMap<>();
-    for (Graph.E edge : graph.segmentEdges()) {
-      adjacency.computeIfAbsent(edge.u(), k -> new HashSet<>()).add(edge.v());
-      adjacency.computeIfAbsent(edge.v(), k -> new HashSet<>()).add(edge.u());
+    for (int e = 0; e < graph.segmentEdgeCount(); e++) {
+      int u = graph.segmentEdgeU(e);
+      int v = graph.segmentEdgeV(e);
+      adjacency.computeIfAbsent(u, k -> new HashSet<>()).add(v);
+      adjacency.computeIfAbsent(v, k -> new HashSet<>()).add(u);
     }
     return adjacency;
   }
@@ -418,25 +432,17 @@ public final class DefaultTriangleCounter implements TriangleCounter {
   }
 
   private boolean isNonDegenerate(Graph graph, int u, int v, int w, double tol) {
-    Graph.V a = graph.vertices().get(u);
-    Graph.V b = graph.vertices().get(v);
-    Graph.V c = graph.vertices().get(w);
     double area2 = Math.abs(
-        a.x() * (b.y() - c.y())
-            + b.x() * (c.y() - a.y())
-            + c.x() * (a.y() - b.y()));
+        graph.x(u) * (graph.y(v) - graph.y(w))
+            + graph.x(v) * (graph.y(w) - graph.y(u))
+            + graph.x(w) * (graph.y(u) - graph.y(v)));
     return area2 > tol;
   }
 
-  private long triangleKey(int[] triangle) {
-    return triangleKey(triangle[0], triangle[1], triangle[2]);
-  }
-
-  private long triangleKey(int a, int b, int c) {
-    int x = Math.min(a, Math.min(b, c));
-    int z = Math.max(a, Math.max(b, c));
-    int y = a + b + c - x - z;
-    return (((long) x) << 42) | (((long) y) << 21) | (long) z;
+  private void checkCancelled() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Triangle count cancelled");
+    }
   }
 
   private record Neighbor(int vertex, double angle) {}
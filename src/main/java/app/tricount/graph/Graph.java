@@ -1,7 +1,10 @@
 package app.tricount.graph;
 
+import java.util.AbstractList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public final class Graph {
   public static final class V {
@@ -46,12 +49,97 @@ public final class Graph {
     }
   }
 
-  private final List<V> vertices;
-  private final List<E> edges;
-  private final Map<Long, Integer> edgeMultiplicity;
+  private final double[] xs;
+  private final double[] ys;
+  private final int[] edgeEnds;
+  private final int[] edgeCounts;
   private final double coordinateTolerance;
-  private final List<E> segmentEdges;
-  private final List<List<Integer>> segmentVertexPaths;
+  private final int[] segmentEnds;
+  private final int[] pathOffsets;
+  private final int[] pathVertices;
+
+  private final List<V> vertexView = new AbstractList<>() {
+    @Override
+    public V get(int index) {
+      Objects.checkIndex(index, xs.length);
+      return new V(index, xs[index], ys[index]);
+    }
+
+    @Override
+    public int size() {
+      return xs.length;
+    }
+  };
+  private final List<List<Integer>> pathView = new AbstractList<>() {
+    @Override
+    public List<Integer> get(int index) {
+      int start = pathOffsets[Objects.checkIndex(index, size())];
+      int length = pathOffsets[index + 1] - start;
+      return new AbstractList<>() {
+        @Override
+        public Integer get(int k) {
+          return pathVertices[start + Objects.checkIndex(k, length)];
+        }
+
+        @Override
+        public int size() {
+          return length;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return segmentPathCount();
+    }
+  };
+  private final List<E> edgeView;
+  private final List<E> segmentEdgeView;
+
+  private volatile Map<Long, Integer> multiplicityView;
+  private volatile Adjacency adjacency;
+
+  // For external callers: copies every array, so they may keep reusing theirs. The pipeline uses adopt().
+  public Graph(
+      double[] xs,
+      double[] ys,
+      int[] edgeEnds,
+      int[] edgeCounts,
+      double coordinateTolerance,
+      int[] segmentEnds,
+      int[] pathOffsets,
+      int[] pathVertices) {
+    this(new Parts(
+        xs.clone(),
+        ys.clone(),
+        edgeEnds.clone(),
+        edgeCounts != null ? edgeCounts.clone() : null,
+        coordinateTolerance,
+        segmentEnds.clone(),
+        pathOffsets.clone(),
+        pathVertices.clone()));
+  }
+
+  private Graph(Parts parts) {
+    if (parts.xs.length != parts.ys.length
+        || parts.edgeEnds.length % 2 != 0
+        || parts.segmentEnds.length % 2 != 0) {
+      throw new IllegalArgumentException("Malformed graph arrays");
+    }
+    if (parts.edgeCounts != null && parts.edgeCounts.length * 2 != parts.edgeEnds.length) {
+      throw new IllegalArgumentException("Edge multiplicity must match edge count");
+    }
+    this.xs = parts.xs;
+    this.ys = parts.ys;
+    this.edgeEnds = normalize(parts.edgeEnds);
+    this.edgeCounts = parts.edgeCounts;
+    this.coordinateTolerance = parts.coordinateTolerance;
+    this.segmentEnds = normalize(parts.segmentEnds);
+    this.pathOffsets = parts.pathOffsets.length == 0 ? new int[] {0} : parts.pathOffsets;
+    this.pathVertices = parts.pathVertices;
+    this.edgeView = new EndpointView(this.edgeEnds);
+    this.segmentEdgeView = new EndpointView(this.segmentEnds);
+  }
 
   public Graph(
       List<V> vertices,
@@ -60,24 +148,115 @@ public final class Graph {
       double coordinateTolerance,
       List<E> segmentEdges,
       List<List<Integer>> segmentVertexPaths) {
-    this.vertices = List.copyOf(vertices);
-    this.edges = List.copyOf(edges);
-    this.edgeMultiplicity = Map.copyOf(edgeMultiplicity);
-    this.coordinateTolerance = coordinateTolerance;
-    this.segmentEdges = List.copyOf(segmentEdges);
-    this.segmentVertexPaths = List.copyOf(segmentVertexPaths);
+    this(new Parts(
+        coordinates(vertices, true),
+        coordinates(vertices, false),
+        endpoints(edges),
+        counts(edges, edgeMultiplicity),
+        coordinateTolerance,
+        endpoints(segmentEdges),
+        offsets(segmentVertexPaths),
+        flatten(segmentVertexPaths)));
+  }
+
+  // Takes ownership without copying: the caller must not touch the arrays afterwards, since edge and segment
+  // ends are normalized in place. For the pipeline stages that build fresh arrays per graph.
+  public static Graph adopt(
+      double[] xs,
+      double[] ys,
+      int[] edgeEnds,
+      int[] edgeCounts,
+      double coordinateTolerance,
+      int[] segmentEnds,
+      int[] pathOffsets,
+      int[] pathVertices) {
+    return new Graph(
+        new Parts(xs, ys, edgeEnds, edgeCounts, coordinateTolerance, segmentEnds, pathOffsets, pathVertices));
+  }
+
+  public int vertexCount() {
+    return xs.length;
+  }
+
+  public double x(int vertex) {
+    return xs[vertex];
+  }
+
+  public double y(int vertex) {
+    return ys[vertex];
+  }
+
+  public int edgeCount() {
+    return edgeEnds.length / 2;
+  }
+
+  public int edgeU(int edge) {
+    return edgeEnds[edge * 2];
+  }
+
+  public int edgeV(int edge) {
+    return edgeEnds[edge * 2 + 1];
+  }
+
+  public int multiplicity(int edge) {
+    Objects.checkIndex(edge, edgeCount());
+    return edgeCounts != null ? edgeCounts[edge] : 1;
+  }
+
+  public int segmentEdgeCount() {
+    return segmentEnds.length / 2;
+  }
+
+  public int segmentEdgeU(int edge) {
+    return segmentEnds[edge * 2];
+  }
+
+  public int segmentEdgeV(int edge) {
+    return segmentEnds[edge * 2 + 1];
+  }
+
+  public int segmentPathCount() {
+    return pathOffsets.length - 1;
+  }
+
+  public int segmentPathLength(int path) {
+    return pathOffsets[path + 1] - pathOffsets[path];
+  }
+
+  public int segmentPathVertex(int path, int index) {
+    return pathVertices[pathOffsets[path] + index];
+  }
+
+  public int degree(int vertex) {
+    Adjacency current = adjacency();
+    return current.offsets[vertex + 1] - current.offsets[vertex];
+  }
+
+  public int neighbor(int vertex, int index) {
+    Adjacency current = adjacency();
+    return current.targets[current.offsets[vertex] + index];
   }
 
   public List<V> vertices() {
-    return vertices;
+    return vertexView;
   }
 
   public List<E> edges() {
-    return edges;
+    return edgeView;
   }
 
   public Map<Long, Integer> edgeMultiplicity() {
-    return edgeMultiplicity;
+    Map<Long, Integer> view = multiplicityView;
+    if (view == null) {
+      Map<Long, Integer> built = new HashMap<>(edgeCount() * 2);
+      for (int i = 0; i < edgeCount(); i++) {
+        long key = (((long) edgeU(i)) << 32) | (edgeV(i) & 0xffffffffL);
+        built.merge(key, edgeCounts != null ? edgeCounts[i] : 1, Integer::sum);
+      }
+      view = Map.copyOf(built);
+      multiplicityView = view;
+    }
+    return view;
   }
 
   public double coordinateTolerance() {
@@ -85,10 +264,129 @@ public final class Graph {
   }
 
   public List<E> segmentEdges() {
-    return segmentEdges;
+    return segmentEdgeView;
   }
 
   public List<List<Integer>> segmentVertexPaths() {
-    return segmentVertexPaths;
+    return pathView;
+  }
+
+  private Adjacency adjacency() {
+    Adjacency current = adjacency;
+    if (current == null) {
+      int n = xs.length;
+      int[] offsets = new int[n + 1];
+      for (int i = 0; i < edgeEnds.length; i++) {
+        offsets[edgeEnds[i] + 1]++;
+      }
+      for (int v = 0; v < n; v++) {
+        offsets[v + 1] += offsets[v];
+      }
+      int[] cursor = new int[n];
+      int[] targets = new int[edgeEnds.length];
+      for (int e = 0; e < edgeEnds.length; e += 2) {
+        int u = edgeEnds[e];
+        int v = edgeEnds[e + 1];
+        targets[offsets[u] + cursor[u]++] = v;
+        targets[offsets[v] + cursor[v]++] = u;
+      }
+      current = new Adjacency(offsets, targets);
+      adjacency = current;
+    }
+    return current;
+  }
+
+  private static int[] normalize(int[] ends) {
+    for (int i = 0; i < ends.length; i += 2) {
+      if (ends[i] > ends[i + 1]) {
+        int tmp = ends[i];
+        ends[i] = ends[i + 1];
+        ends[i + 1] = tmp;
+      }
+    }
+    return ends;
+  }
+
+  private static double[] coordinates(List<V> vertices, boolean x) {
+    double[] values = new double[vertices.size()];
+    for (int i = 0; i < values.length; i++) {
+      V vertex = vertices.get(i);
+      values[i] = x ? vertex.x() : vertex.y();
+    }
+    return values;
+  }
+
+  private static int[] endpoints(List<E> edges) {
+    int[] ends = new int[edges.size() * 2];
+    for (int i = 0; i < edges.size(); i++) {
+      E edge = edges.get(i);
+      ends[i * 2] = edge.u();
+      ends[i * 2 + 1] = edge.v();
+    }
+    return ends;
+  }
+
+  private static int[] counts(List<E> edges, Map<Long, Integer> multiplicity) {
+    int[] counts = new int[edges.size()];
+    for (int i = 0; i < counts.length; i++) {
+      E edge = edges.get(i);
+      Integer count = multiplicity.get((((long) edge.u()) << 32) | (edge.v() & 0xffffffffL));
+      counts[i] = count != null ? count : 1;
+    }
+    return counts;
+  }
+
+  private static int[] offsets(List<List<Integer>> paths) {
+    int[] offsets = new int[paths.size() + 1];
+    for (int i = 0; i < paths.size(); i++) {
+      offsets[i + 1] = offsets[i] + paths.get(i).size();
+    }
+    return offsets;
+  }
+
+  private static int[] flatten(List<List<Integer>> paths) {
+    int total = 0;
+    for (List<Integer> path : paths) {
+      total += path.size();
+    }
+    int[] flat = new int[total];
+    int index = 0;
+    for (List<Integer> path : paths) {
+      for (int vertex : path) {
+        flat[index++] = vertex;
+      }
+    }
+    return flat;
+  }
+
+  private record Adjacency(int[] offsets, int[] targets) {}
+
+  private record Parts(
+      double[] xs,
+      double[] ys,
+      int[] edgeEnds,
+      int[] edgeCounts,
+      double coordinateTolerance,
+      int[] segmentEnds,
+      int[] pathOffsets,
+      int[] pathVertices) {}
+
+  private static final class EndpointView extends AbstractList<E> {
+    private final int[] ends;
+
+    private EndpointView(int[] ends) {
+      this.ends = ends;
+    }
+
+    @Override
+    public E get(int index) {
+      Objects.checkIndex(index, size());
+      return new E(ends[index * 2], ends[index * 2 + 1]);
+    }
+
+    @Override
+    public int size() {
+      return ends.length / 2;
+    }
   }
 }
@@ -1,16 +1,25 @@
 package app.tricount.graph;
 
 import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
 import java.util.List;
 
 public interface TriangleCounter {
-  Graph buildPlanarGraph(List<Segment> segments, double coordTol);
+  Graph buildPlanarGraph(SegmentStore segments, double coordTol);
 
   Graph contractStraightVertices(Graph graph, double angleTol);
 
   List<int[]> triangles(Graph graph);
 
+  default Graph buildPlanarGraph(List<Segment> segments, double coordTol) {
+    return buildPlanarGraph(SegmentStore.of(segments), coordTol);
+  }
+
   default List<int[]> countTriangles(List<Segment> segments, double coordTol, double angleTol) {
+    return countTriangles(SegmentStore.of(segments), coordTol, angleTol);
+  }
+
+  default List<int[]> countTriangles(SegmentStore segments, double coordTol, double angleTol) {
     Graph planar = buildPlanarGraph(segments, coordTol);
     Graph simplified = contractStraightVertices(planar, angleTol);
     return triangles(simplified);
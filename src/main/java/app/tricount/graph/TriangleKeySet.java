@@ -0,0 +1,109 @@
+package app.tricount.graph;
+
+public final class TriangleKeySet {
+  private static final int KEY_INTS = 3;
+  private static final int MIN_CAPACITY = 16;
+
+  private int[] keys;
+  private boolean[] used;
+  private int mask;
+  private int size;
+  private int resizeAt;
+
+  public TriangleKeySet() {
+    this(MIN_CAPACITY);
+  }
+
+  public TriangleKeySet(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < Math.max(expectedSize, 1) * 2L && capacity < (1 << 28)) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  public boolean add(int[] triangle) {
+    return add(triangle[0], triangle[1], triangle[2]);
+  }
+
+  public boolean add(int a, int b, int c) {
+    int x = Math.min(a, Math.min(b, c));
+    int z = Math.max(a, Math.max(b, c));
+    int y = a ^ b ^ c ^ x ^ z;
+    int slot = find(x, y, z);
+    if (used[slot]) {
+      return false;
+    }
+    store(slot, x, y, z);
+    if (++size > resizeAt) {
+      grow();
+    }
+    return true;
+  }
+
+  public boolean contains(int a, int b, int c) {
+    int x = Math.min(a, Math.min(b, c));
+    int z = Math.max(a, Math.max(b, c));
+    int y = a ^ b ^ c ^ x ^ z;
+    return used[find(x, y, z)];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private int find(int x, int y, int z) {
+    int slot = hash(x, y, z) & mask;
+    while (used[slot]) {
+      int base = slot * KEY_INTS;
+      if (keys[base] == x && keys[base + 1] == y && keys[base + 2] == z) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void store(int slot, int x, int y, int z) {
+    int base = slot * KEY_INTS;
+    keys[base] = x;
+    keys[base + 1] = y;
+    keys[base + 2] = z;
+    used[slot] = true;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    boolean[] oldUsed = used;
+    allocate(oldUsed.length << 1);
+    for (int i = 0; i < oldUsed.length; i++) {
+      if (!oldUsed[i]) {
+        continue;
+      }
+      int base = i * KEY_INTS;
+      int x = oldKeys[base];
+      int y = oldKeys[base + 1];
+      int z = oldKeys[base + 2];
+      int slot = hash(x, y, z) & mask;
+      while (used[slot]) {
+        slot = (slot + 1) & mask;
+      }
+      store(slot, x, y, z);
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity * KEY_INTS];
+    used = new boolean[capacity];
+    mask = capacity - 1;
+    resizeAt = capacity / 2;
+  }
+
+  private static int hash(int x, int y, int z) {
+    long h = (x & 0xffffffffL) * 0x9E3779B97F4A7C15L;
+    h = (h ^ (y & 0xffffffffL)) * 0xBF58476D1CE4E5B9L;
+    h = (h ^ (z & 0xffffffffL)) * 0x94D049BB133111EBL;
+    h ^= h >>> 31;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -1,19 +1,20 @@
 package app.tricount.graph;
 
 import app.tricount.geometry.PlanarGraphBuilder;
-import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 public final class VisualTriangleCounter implements TriangleCounter {
   private final PlanarGraphBuilder builder = new PlanarGraphBuilder();
 
   @Override
-  public Graph buildPlanarGraph(List<Segment> segments, double coordTol) {
+  public Graph buildPlanarGraph(SegmentStore segments, double coordTol) {
     return builder.build(segments, coordTol);
   }
 
@@ -28,21 +29,21 @@ public final class VisualTriangleCounter implements TriangleCounter {
   }
 
   @Override
-  public List<int[]> countTriangles(List<Segment> segments, double coordTol, double angleTol) {
+  public List<int[]> countTriangles(SegmentStore segments, double coordTol, double angleTol) {
     Graph planar = builder.build(segments, coordTol);
     return trianglesFromGraph(planar);
   }
 
   private List<int[]> trianglesFromGraph(Graph graph) {
-    int n = graph.vertices().size();
+    int n = graph.vertexCount();
     if (n < 3) {
       return List.of();
     }
-    Map<Integer, Set<Integer>> share = buildSharedSegmentMap(graph.segmentVertexPaths());
+    Map<Integer, Set<Integer>> share = buildSharedSegmentMap(graph);
     List<int[]> triangles = new ArrayList<>();
-    Set<Long> seen = new HashSet<>();
     double tol = graph.coordinateTolerance();
     for (int a = 0; a < n - 2; a++) {
+      checkCancelled();
       for (int b = a + 1; b < n - 1; b++) {
         if (!connected(share, graph, a, b)) {
           continue;
@@ -54,27 +55,24 @@ public final class VisualTriangleCounter implements TriangleCounter {
           if (area(graph, a, b, c) <= tol) {
             continue;
           }
-          long key = triangleKey(a, b, c);
-          if (seen.add(key)) {
-            triangles.add(new int[] {a, b, c});
-          }
+          triangles.add(new int[] {a, b, c});
         }
       }
     }
     return triangles;
   }
 
-  private Map<Integer, Set<Integer>> buildSharedSegmentMap(List<List<Integer>> segmentPaths) {
+  private Map<Integer, Set<Integer>> buildSharedSegmentMap(Graph graph) {
     Map<Integer, Set<Integer>> share = new HashMap<>();
-    for (List<Integer> path : segmentPaths) {
-      int size = path.size();
+    for (int path = 0; path < graph.segmentPathCount(); path++) {
+      int size = graph.segmentPathLength(path);
       if (size < 2) {
         continue;
       }
       for (int i = 0; i < size; i++) {
-        int u = path.get(i);
+        int u = graph.segmentPathVertex(path, i);
         for (int j = i + 1; j < size; j++) {
-          int v = path.get(j);
+          int v = graph.segmentPathVertex(path, j);
           share.computeIfAbsent(u, k -> new HashSet<>()).add(v);
           share.computeIfAbsent(v, k -> new HashSet<>()).add(u);
         }
@@ -94,10 +92,8 @@ public final class VisualTriangleCounter implements TriangleCounter {
     if (neighbors.contains(v)) {
       return true;
     }
-    Graph.V start = graph.vertices().get(u);
-    Graph.V target = graph.vertices().get(v);
-    double tx = target.x() - start.x();
-    double ty = target.y() - start.y();
+    double tx = graph.x(v) - graph.x(u);
+    double ty = graph.y(v) - graph.y(u);
     double tol = Math.max(graph.coordinateTolerance(), 1e-9);
     List<Integer> queue = new ArrayList<>();
     Set<Integer> visited = new HashSet<>();
@@ -111,7 +107,6 @@ public final class VisualTriangleCounter implements TriangleCounter {
         continue;
       }
       boolean junction = curr != u && currNeighbors.size() > 2;
-      Graph.V currVertex = graph.vertices().get(curr);
       for (int next : currNeighbors) {
         if (!visited.add(next)) {
           continue;
@@ -119,9 +114,8 @@ public final class VisualTriangleCounter implements TriangleCounter {
         if (junction) {
           continue;
         }
-        Graph.V nextVertex = graph.vertices().get(next);
-        double sx = nextVertex.x() - currVertex.x();
-        double sy = nextVertex.y() - currVertex.y();
+        double sx = graph.x(next) - graph.x(curr);
+        double sy = graph.y(next) - graph.y(curr);
         double cross = tx * sy - ty * sx;
         if (Math.abs(cross) > tol * (Math.abs(tx) + Math.abs(ty) + Math.abs(sx) + Math.abs(sy) + 1)) {
           continue;
@@ -135,18 +129,17 @@ public final class VisualTriangleCounter implements TriangleCounter {
     return false;
   }
 
-  private double area(Graph graph, int a, int b, int c) {
-    Graph.V va = graph.vertices().get(a);
-    Graph.V vb = graph.vertices().get(b);
-    Graph.V vc = graph.vertices().get(c);
-    double value = va.x() * (vb.y() - vc.y()) + vb.x() * (vc.y() - va.y()) + vc.x() * (va.y() - vb.y());
-    return Math.abs(value) * 0.5;
+  private void checkCancelled() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Triangle count cancelled");
+    }
   }
 
-  private long triangleKey(int a, int b, int c) {
-    int x = Math.min(a, Math.min(b, c));
-    int z = Math.max(a, Math.max(b, c));
-    int y = a + b + c - x - z;
-    return (((long) x) << 42) | (((long) y) << 21) | (long) z;
+  private double area(Graph graph, int a, int b, int c) {
+    double value =
+        graph.x(a) * (graph.y(b) - graph.y(c))
+            + graph.x(b) * (graph.y(c) - graph.y(a))
+            + graph.x(c) * (graph.y(a) - graph.y(b));
+    return Math.abs(value) * 0.5;
   }
 }
@@ -0,0 +1,280 @@
+package app.tricount.io;
+
+import app.tricount.geometry.Segment;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+public final class BinaryProject {
+  static final byte[] MAGIC = {'T', 'R', 'I', 'C', 'B', 'I', 'N', 1};
+  private static final int HEADER_BYTES = MAGIC.length + Double.BYTES + Long.BYTES;
+  private static final int CHUNK_BYTES = 1 << 16;
+  private static final int MAX_SEGMENTS = Integer.MAX_VALUE / Double.BYTES;
+
+  private final double tolerance;
+  private final int count;
+  private final DoubleBuffer x1;
+  private final DoubleBuffer y1;
+  private final DoubleBuffer x2;
+  private final DoubleBuffer y2;
+  private final IntBuffer idOffsets;
+  private final ByteBuffer idBytes;
+
+  private BinaryProject(
+      double tolerance,
+      int count,
+      DoubleBuffer x1,
+      DoubleBuffer y1,
+      DoubleBuffer x2,
+      DoubleBuffer y2,
+      IntBuffer idOffsets,
+      ByteBuffer idBytes) {
+    this.tolerance = tolerance;
+    this.count = count;
+    this.x1 = x1;
+    this.y1 = y1;
+    this.x2 = x2;
+    this.y2 = y2;
+    this.idOffsets = idOffsets;
+    this.idBytes = idBytes;
+  }
+
+  public static boolean matches(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return matches(in.readNBytes(MAGIC.length));
+    }
+  }
+
+  static boolean matches(byte[] prefix) {
+    return Arrays.equals(prefix, MAGIC);
+  }
+
+  public static BinaryProject open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES) {
+        throw new IOException("Truncated binary project header");
+      }
+      Layout layout = Layout.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES), size);
+      long columnBytes = layout.columnBytes();
+      DoubleBuffer x1 = column(channel, HEADER_BYTES, columnBytes);
+      DoubleBuffer y1 = column(channel, HEADER_BYTES + columnBytes, columnBytes);
+      DoubleBuffer x2 = column(channel, HEADER_BYTES + 2 * columnBytes, columnBytes);
+      DoubleBuffer y2 = column(channel, HEADER_BYTES + 3 * columnBytes, columnBytes);
+      IntBuffer offsets = order(
+          channel.map(FileChannel.MapMode.READ_ONLY, layout.offsetsStart(), layout.offsetsBytes())).asIntBuffer();
+      long idLength = layout.checkIdTable(offsets);
+      ByteBuffer ids = channel.map(FileChannel.MapMode.READ_ONLY, layout.idStart(), idLength);
+      return new BinaryProject(layout.tolerance(), layout.count(), x1, y1, x2, y2, offsets, ids);
+    }
+  }
+
+  public static BinaryProject wrap(ByteBuffer bytes) throws IOException {
+    ByteBuffer source = bytes.slice();
+    long size = source.remaining();
+    if (size < HEADER_BYTES) {
+      throw new IOException("Truncated binary project header");
+    }
+    Layout layout = Layout.read(source.slice(0, HEADER_BYTES), size);
+    int columnBytes = (int) layout.columnBytes();
+    DoubleBuffer x1 = order(source.slice(HEADER_BYTES, columnBytes)).asDoubleBuffer();
+    DoubleBuffer y1 = order(source.slice(HEADER_BYTES + columnBytes, columnBytes)).asDoubleBuffer();
+    DoubleBuffer x2 = order(source.slice(HEADER_BYTES + 2 * columnBytes, columnBytes)).asDoubleBuffer();
+    DoubleBuffer y2 = order(source.slice(HEADER_BYTES + 3 * columnBytes, columnBytes)).asDoubleBuffer();
+    IntBuffer offsets =
+        order(source.slice((int) layout.offsetsStart(), (int) layout.offsetsBytes())).asIntBuffer();
+    long idLength = layout.checkIdTable(offsets);
+    ByteBuffer ids = source.slice((int) layout.idStart(), (int) idLength);
+    return new BinaryProject(layout.tolerance(), layout.count(), x1, y1, x2, y2, offsets, ids);
+  }
+
+  public static void write(Path path, double tolerance, Collection<Segment> segments) throws IOException {
+    int count = segments.size();
+    try (FileChannel channel = FileChannel.open(
+        path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = order(ByteBuffer.allocateDirect(CHUNK_BYTES));
+      buffer.put(MAGIC);
+      buffer.putDouble(tolerance);
+      buffer.putLong(count);
+      writeColumn(channel, buffer, segments, Segment::x1);
+      writeColumn(channel, buffer, segments, Segment::y1);
+      writeColumn(channel, buffer, segments, Segment::x2);
+      writeColumn(channel, buffer, segments, Segment::y2);
+      int offset = 0;
+      for (Segment segment : segments) {
+        ensureCapacity(channel, buffer, Integer.BYTES);
+        buffer.putInt(offset);
+        offset = Math.addExact(offset, utf8Length(segment.id()));
+      }
+      ensureCapacity(channel, buffer, Integer.BYTES);
+      buffer.putInt(offset);
+      for (Segment segment : segments) {
+        byte[] id = segment.id().getBytes(StandardCharsets.UTF_8);
+        int written = 0;
+        while (written < id.length) {
+          ensureCapacity(channel, buffer, 1);
+          int chunk = Math.min(buffer.remaining(), id.length - written);
+          buffer.put(id, written, chunk);
+          written += chunk;
+        }
+      }
+      flush(channel, buffer);
+    }
+  }
+
+  public double tolerance() {
+    return tolerance;
+  }
+
+  public int size() {
+    return count;
+  }
+
+  public DoubleBuffer x1() {
+    return x1.duplicate();
+  }
+
+  public DoubleBuffer y1() {
+    return y1.duplicate();
+  }
+
+  public DoubleBuffer x2() {
+    return x2.duplicate();
+  }
+
+  public DoubleBuffer y2() {
+    return y2.duplicate();
+  }
+
+  public String id(int index) {
+    int start = idOffsets.get(index);
+    int end = idOffsets.get(index + 1);
+    byte[] bytes = new byte[end - start];
+    idBytes.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public Segment segment(int index) {
+    return new Segment(x1.get(index), y1.get(index), x2.get(index), y2.get(index), id(index));
+  }
+
+  public void forEach(Consumer<Segment> sink) {
+    for (int i = 0; i < count; i++) {
+      sink.accept(segment(i));
+    }
+  }
+
+  private static DoubleBuffer column(FileChannel channel, long offset, long bytes) throws IOException {
+    return order(channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes)).asDoubleBuffer();
+  }
+
+  private static void writeColumn(
+      FileChannel channel,
+      ByteBuffer buffer,
+      Collection<Segment> segments,
+      ToDoubleFunction<Segment> value) throws IOException {
+    for (Segment segment : segments) {
+      ensureCapacity(channel, buffer, Double.BYTES);
+      buffer.putDouble(value.applyAsDouble(segment));
+    }
+  }
+
+  private static void ensureCapacity(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush(channel, buffer);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static int utf8Length(String value) {
+    return value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static ByteBuffer order(ByteBuffer buffer) {
+    return buffer.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private record Layout(double tolerance, int count, long size) {
+    static Layout read(ByteBuffer header, long size) throws IOException {
+      order(header);
+      byte[] magic = new byte[MAGIC.length];
+      header.get(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException("Not a binary project file");
+      }
+      double tolerance = header.getDouble();
+      long declared = header.getLong();
+      if (declared < 0 || declared > Integer.MAX_VALUE - 1) {
+        throw new IOException("Invalid segment count " + declared);
+      }
+      Layout layout = new Layout(tolerance, (int) declared, size);
+      // Each column is mapped as one buffer, and a single mapping cannot exceed 2 GiB.
+      if (layout.columnBytes() > Integer.MAX_VALUE) {
+        throw new IOException("Binary project has " + declared + " segments; at most " + MAX_SEGMENTS
+            + " fit in 2 GiB columns");
+      }
+      if (size < layout.idStart()) {
+        throw new IOException("Truncated binary project columns");
+      }
+      return layout;
+    }
+
+    long columnBytes() {
+      return (long) count * Double.BYTES;
+    }
+
+    long offsetsStart() {
+      return HEADER_BYTES + 4 * columnBytes();
+    }
+
+    long offsetsBytes() {
+      return (long) (count + 1) * Integer.BYTES;
+    }
+
+    long idStart() {
+      return offsetsStart() + offsetsBytes();
+    }
+
+    // id() slices between neighbouring offsets, so they must start at 0 or later and never decrease.
+    long checkIdTable(IntBuffer offsets) throws IOException {
+      int previous = offsets.get(0);
+      if (previous < 0) {
+        throw new IOException("Invalid binary project id offset " + previous + " for segment 0");
+      }
+      for (int i = 1; i <= count; i++) {
+        int offset = offsets.get(i);
+        if (offset < previous) {
+          throw new IOException("Invalid binary project id offset " + offset + " for segment " + i);
+        }
+        previous = offset;
+      }
+      long idLength = previous;
+      if (size < idStart() + idLength) {
+        throw new IOException("Truncated binary project id table");
+      }
+      return idLength;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package app.tricount.io;
+
+import java.io.IOException;
+
+public final class InputTooLargeException extends IOException {
+  private final long limit;
+
+  public InputTooLargeException(long limit) {
+    super("Decompressed input exceeds " + limit + " bytes");
+    this.limit = limit;
+  }
+
+  public long limit() {
+    return limit;
+  }
+}
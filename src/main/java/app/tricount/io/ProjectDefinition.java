@@ -1,6 +1,11 @@
 package app.tricount.io;
 
 import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
 import java.util.List;
 
-public record ProjectDefinition(double tolerance, List<Segment> segments) {}
+public record ProjectDefinition(double tolerance, SegmentStore store) {
+  public List<Segment> segments() {
+    return store.asList();
+  }
+}
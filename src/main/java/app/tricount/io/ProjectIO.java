@@ -1,75 +1,587 @@
 package app.tricount.io;
 
+import app.tricount.events.LoadEvent;
 import app.tricount.geometry.Segment;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import app.tricount.geometry.SegmentKeySet;
+import app.tricount.geometry.SegmentStore;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public final class ProjectIO {
-  private final ObjectMapper mapper;
+  public static final String JSON_EXTENSION = ".json";
+  public static final String BINARY_EXTENSION = ".tcb";
+  public static final String NDJSON_EXTENSION = ".ndjson";
+  public static final String GZIP_EXTENSION = ".gz";
+  private static final double DEFAULT_TOLERANCE = 1e-6;
+  private static final int WRITE_BUFFER_BYTES = 1 << 16;
+  private static final long PROGRESS_MASK = (1 << 12) - 1;
+  private static final int GZIP_BUFFER_BYTES = 1 << 16;
+  private static final long MIN_CHUNK_BYTES = 1 << 20;
+  private static final long MAX_CHUNK_BYTES = 1 << 30;
+
+  public interface ProgressListener {
+    void progress(long done, long total);
+  }
+
+  private final JsonFactory factory;
 
   public ProjectIO() {
-    mapper = new ObjectMapper();
-    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    factory = new JsonFactory();
+    factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
   }
 
   public ProjectDefinition load(Path path) throws IOException {
-    try (var reader = Files.newBufferedReader(path)) {
-      ProjectDto dto = mapper.readValue(reader, ProjectDto.class);
-      double tolerance = dto.tolerance;
-      if (!(tolerance > 0)) {
-        tolerance = 1e-6;
-      }
-      List<Segment> segments = new ArrayList<>();
-      Set<Long> seen = new HashSet<>();
-      int counter = 0;
-      if (dto.segments != null) {
-        for (SegmentDto segment : dto.segments) {
-          double x1 = requireFinite(segment.x1, "x1");
-          double y1 = requireFinite(segment.y1, "y1");
-          double x2 = requireFinite(segment.x2, "x2");
-          double y2 = requireFinite(segment.y2, "y2");
-          if (isZeroLength(x1, y1, x2, y2, tolerance)) {
-            continue;
+    SegmentStore store = new SegmentStore();
+    double tolerance = load(path, store::add);
+    return new ProjectDefinition(tolerance, store.snapshot());
+  }
+
+  public double load(Path path, Consumer<Segment> sink) throws IOException {
+    LoadEvent event = new LoadEvent();
+    event.begin();
+    double tolerance = loadPath(path, event.isEnabled() ? counting(event, sink) : sink);
+    if (event.shouldCommit()) {
+      event.source = path.toString();
+      event.bytes = Files.size(path);
+      event.tolerance = tolerance;
+      event.commit();
+    }
+    return tolerance;
+  }
+
+  private double loadPath(Path path, Consumer<Segment> sink) throws IOException {
+    byte[] prefix = readPrefix(path, BinaryProject.MAGIC.length);
+    if (BinaryProject.matches(prefix)) {
+      return load(BinaryProject.open(path), sink);
+    }
+    boolean gzip = isGzip(prefix);
+    if (isNdjsonPath(path) && !gzip) {
+      return loadNdjson(path, sink, -1);
+    }
+    try (InputStream in = openInput(path, gzip)) {
+      return isNdjsonPath(path) ? loadNdjson(in, sink) : load(in, sink);
+    }
+  }
+
+  private static Consumer<Segment> counting(LoadEvent event, Consumer<Segment> sink) {
+    return segment -> {
+      event.segments++;
+      sink.accept(segment);
+    };
+  }
+
+  public double load(InputStream in, Consumer<Segment> sink) throws IOException {
+    try (JsonParser parser = factory.createParser(in)) {
+      return readProject(parser, sink);
+    }
+  }
+
+  public ProjectDefinition read(byte[] bytes, boolean ndjson) throws IOException {
+    return read(bytes, ndjson, Long.MAX_VALUE);
+  }
+
+  // maxInflatedBytes caps what a gzip body may expand to; beyond it the read fails with InputTooLargeException.
+  public ProjectDefinition read(byte[] bytes, boolean ndjson, long maxInflatedBytes) throws IOException {
+    LoadEvent event = new LoadEvent();
+    event.begin();
+    SegmentStore store = new SegmentStore();
+    double tolerance;
+    if (BinaryProject.matches(Arrays.copyOf(bytes, Math.min(bytes.length, BinaryProject.MAGIC.length)))) {
+      tolerance = load(BinaryProject.wrap(ByteBuffer.wrap(bytes)), store::add);
+    } else {
+      InputStream in = new ByteArrayInputStream(bytes);
+      if (isGzip(bytes)) {
+        in = new BoundedInputStream(new GZIPInputStream(in, GZIP_BUFFER_BYTES), maxInflatedBytes);
+      }
+      tolerance = ndjson ? loadNdjson(in, store::add) : load(in, store::add);
+    }
+    if (event.shouldCommit()) {
+      event.source = "request";
+      event.bytes = bytes.length;
+      event.segments = store.size();
+      event.tolerance = tolerance;
+      event.commit();
+    }
+    return new ProjectDefinition(tolerance, store.snapshot());
+  }
+
+  public double load(BinaryProject project, Consumer<Segment> sink) {
+    double tolerance = normalizeTolerance(project.tolerance());
+    SegmentFilter filter = new SegmentFilter(tolerance, sink);
+    DoubleBuffer x1 = project.x1();
+    DoubleBuffer y1 = project.y1();
+    DoubleBuffer x2 = project.x2();
+    DoubleBuffer y2 = project.y2();
+    for (int i = 0; i < project.size(); i++) {
+      filter.accept(new RawSegment(project.id(i), x1.get(i), y1.get(i), x2.get(i), y2.get(i)));
+    }
+    return tolerance;
+  }
+
+  public double loadNdjson(InputStream in, Consumer<Segment> sink) throws IOException {
+    try (JsonParser parser = factory.createParser(in)) {
+      return readNdjson(parser, sink);
+    }
+  }
+
+  public void save(Path path, double tolerance, Collection<Segment> segments) throws IOException {
+    save(path, tolerance, segments, false, null);
+  }
+
+  public void save(
+      Path path,
+      double tolerance,
+      Collection<Segment> segments,
+      boolean compact,
+      ProgressListener progress) throws IOException {
+    try (OutputStream out = openOutput(path)) {
+      if (isNdjsonPath(path)) {
+        writeNdjson(out, tolerance, segments, progress);
+      } else {
+        write(out, tolerance, segments, compact, progress);
+      }
+    }
+  }
+
+  public void saveBinary(Path path, double tolerance, Collection<Segment> segments) throws IOException {
+    BinaryProject.write(path, tolerance, segments);
+  }
+
+  public void convert(Path source, Path target) throws IOException {
+    ProjectDefinition project = load(source);
+    if (isBinaryPath(target)) {
+      saveBinary(target, project.tolerance(), project.segments());
+    } else {
+      save(target, project.tolerance(), project.segments(), false, null);
+    }
+  }
+
+  public static boolean isBinaryPath(Path path) {
+    return hasExtension(path, BINARY_EXTENSION, false);
+  }
+
+  public static boolean isNdjsonPath(Path path) {
+    return hasExtension(path, NDJSON_EXTENSION, true);
+  }
+
+  public static boolean isGzipPath(Path path) {
+    return hasExtension(path, GZIP_EXTENSION, false);
+  }
+
+  public static boolean isProjectPath(Path path) {
+    return hasExtension(path, JSON_EXTENSION, true) || isNdjsonPath(path) || isBinaryPath(path);
+  }
+
+  public void write(
+      OutputStream out,
+      double tolerance,
+      Collection<Segment> segments,
+      boolean compact,
+      ProgressListener progress) throws IOException {
+    long total = segments.size();
+    long written = 0;
+    try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+      if (!compact) {
+        generator.useDefaultPrettyPrinter();
+      }
+      generator.writeStartObject();
+      generator.writeNumberField("tolerance", tolerance);
+      generator.writeArrayFieldStart("segments");
+      for (Segment segment : segments) {
+        writeSegment(generator, segment);
+        written++;
+        if (progress != null && (written & PROGRESS_MASK) == 0) {
+          progress.progress(written, total);
+        }
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+    if (progress != null) {
+      progress.progress(written, total);
+    }
+  }
+
+  public void writeNdjson(
+      OutputStream out,
+      double tolerance,
+      Collection<Segment> segments,
+      ProgressListener progress) throws IOException {
+    long total = segments.size();
+    long written = 0;
+    try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+      generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+      generator.writeStartObject();
+      generator.writeNumberField("tolerance", tolerance);
+      generator.writeEndObject();
+      for (Segment segment : segments) {
+        writeSegment(generator, segment);
+        written++;
+        if (progress != null && (written & PROGRESS_MASK) == 0) {
+          progress.progress(written, total);
+        }
+      }
+      generator.writeRaw('\n');
+    }
+    if (progress != null) {
+      progress.progress(written, total);
+    }
+  }
+
+  double loadNdjson(Path path, Consumer<Segment> sink, int chunkCount) throws IOException {
+    List<ByteBuffer> chunks = new ArrayList<>();
+    double declaredTolerance = 0d;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long bodyStart = nextLineStart(channel, 0, size);
+      if (bodyStart > 0) {
+        ByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0, bodyStart);
+        try (JsonParser parser = factory.createParser(new ByteBufferInputStream(first))) {
+          double[] header = {Double.NaN};
+          if (parser.nextToken() == JsonToken.START_OBJECT) {
+            readSegment(parser, header);
+          }
+          if (Double.isNaN(header[0])) {
+            bodyStart = 0;
+          } else {
+            declaredTolerance = header[0];
+          }
+        }
+      }
+      int count = chunkCount > 0 ? chunkCount : defaultChunkCount(size - bodyStart);
+      long start = bodyStart;
+      for (int i = 1; i <= count && start < size; i++) {
+        long end = i == count ? size : nextLineStart(channel, bodyStart + (size - bodyStart) * i / count, size);
+        if (end > start) {
+          chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+          start = end;
+        }
+      }
+    }
+    double tolerance = normalizeTolerance(declaredTolerance);
+    List<List<RawSegment>> parsed;
+    try {
+      parsed = chunks.parallelStream().map(chunk -> parseChunk(chunk, tolerance)).toList();
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    SegmentFilter filter = new SegmentFilter(tolerance, sink);
+    for (List<RawSegment> chunk : parsed) {
+      for (RawSegment raw : chunk) {
+        filter.admit(raw);
+      }
+    }
+    return tolerance;
+  }
+
+  private void writeSegment(JsonGenerator generator, Segment segment) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("id", segment.id());
+    generator.writeNumberField("x1", segment.x1());
+    generator.writeNumberField("y1", segment.y1());
+    generator.writeNumberField("x2", segment.x2());
+    generator.writeNumberField("y2", segment.y2());
+    generator.writeEndObject();
+  }
+
+  private double readNdjson(JsonParser parser, Consumer<Segment> sink) throws IOException {
+    double[] header = {Double.NaN};
+    RawSegment first = null;
+    JsonToken token = parser.nextToken();
+    if (token == JsonToken.START_OBJECT) {
+      first = readSegment(parser, header);
+    } else if (token != null) {
+      throw new JsonParseException(parser, "Expected a segment object");
+    }
+    boolean hasHeader = !Double.isNaN(header[0]);
+    double tolerance = normalizeTolerance(hasHeader ? header[0] : 0d);
+    SegmentFilter filter = new SegmentFilter(tolerance, sink);
+    if (first != null && !hasHeader) {
+      filter.accept(first);
+    }
+    while ((token = parser.nextToken()) != null) {
+      if (token != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected a segment object");
+      }
+      filter.accept(readSegment(parser));
+    }
+    return tolerance;
+  }
+
+  private List<RawSegment> parseChunk(ByteBuffer chunk, double tolerance) {
+    List<RawSegment> segments = new ArrayList<>();
+    try (JsonParser parser = factory.createParser(new ByteBufferInputStream(chunk))) {
+      JsonToken token;
+      while ((token = parser.nextToken()) != null) {
+        if (token != JsonToken.START_OBJECT) {
+          throw new JsonParseException(parser, "Expected a segment object");
+        }
+        RawSegment segment = validate(readSegment(parser), tolerance);
+        if (segment != null) {
+          segments.add(segment);
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return segments;
+  }
+
+  private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    long position = from;
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  private static int defaultChunkCount(long bytes) {
+    long byCores = Runtime.getRuntime().availableProcessors() * 4L;
+    long bySize = Math.max(1, bytes / MIN_CHUNK_BYTES);
+    long count = Math.max(Math.min(byCores, bySize), bytes / MAX_CHUNK_BYTES + 1);
+    return (int) Math.min(count, Integer.MAX_VALUE);
+  }
+
+  private static boolean hasExtension(Path path, String extension, boolean allowGzip) {
+    Path fileName = path.getFileName();
+    if (fileName == null) {
+      return false;
+    }
+    String name = fileName.toString().toLowerCase(Locale.ROOT);
+    if (allowGzip && name.endsWith(GZIP_EXTENSION)) {
+      name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+    }
+    return name.endsWith(extension);
+  }
+
+  private static byte[] readPrefix(Path path, int length) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return in.readNBytes(length);
+    }
+  }
+
+  private static boolean isGzip(byte[] prefix) {
+    return prefix.length >= 2 && prefix[0] == (byte) 0x1f && prefix[1] == (byte) 0x8b;
+  }
+
+  private static InputStream openInput(Path path, boolean gzip) throws IOException {
+    InputStream in = Files.newInputStream(path);
+    if (!gzip) {
+      return in;
+    }
+    try {
+      return new GZIPInputStream(in, GZIP_BUFFER_BYTES);
+    } catch (IOException ex) {
+      in.close();
+      throw ex;
+    }
+  }
+
+  private static OutputStream openOutput(Path path) throws IOException {
+    OutputStream out = Files.newOutputStream(path);
+    if (isGzipPath(path)) {
+      out = new GZIPOutputStream(out, GZIP_BUFFER_BYTES);
+    }
+    return new BufferedOutputStream(out, WRITE_BUFFER_BYTES);
+  }
+
+  private double readProject(JsonParser parser, Consumer<Segment> sink) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected a project object");
+    }
+    double declaredTolerance = 0d;
+    boolean toleranceSeen = false;
+    SegmentFilter filter = null;
+    List<RawSegment> early = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if ("tolerance".equals(field)) {
+        declaredTolerance = readNumber(parser, value);
+        toleranceSeen = true;
+      } else if ("segments".equals(field)) {
+        if (value == JsonToken.VALUE_NULL) {
+          continue;
+        }
+        if (value != JsonToken.START_ARRAY) {
+          throw new JsonParseException(parser, "Expected an array of segments");
+        }
+        if (toleranceSeen) {
+          if (filter == null) {
+            filter = new SegmentFilter(normalizeTolerance(declaredTolerance), sink);
           }
-          long key = segmentKey(x1, y1, x2, y2, tolerance);
-          if (!seen.add(key)) {
-            continue;
+          readSegments(parser, filter::accept);
+        } else {
+          if (early == null) {
+            early = new ArrayList<>();
           }
-          String id = segment.id;
-          if (id == null || id.isBlank()) {
-            id = "s" + (++counter);
+          readSegments(parser, early::add);
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    double tolerance = normalizeTolerance(declaredTolerance);
+    if (early != null) {
+      SegmentFilter target = filter != null ? filter : new SegmentFilter(tolerance, sink);
+      for (RawSegment raw : early) {
+        target.accept(raw);
+      }
+    }
+    return tolerance;
+  }
+
+  private void readSegments(JsonParser parser, Consumer<RawSegment> consumer) throws IOException {
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (token != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected a segment object");
+      }
+      consumer.accept(readSegment(parser));
+    }
+  }
+
+  private RawSegment readSegment(JsonParser parser) throws IOException {
+    return readSegment(parser, null);
+  }
+
+  private RawSegment readSegment(JsonParser parser, double[] header) throws IOException {
+    String id = null;
+    double x1 = 0d;
+    double y1 = 0d;
+    double x2 = 0d;
+    double y2 = 0d;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "id" -> id = readId(parser, value);
+        case "x1" -> x1 = readNumber(parser, value);
+        case "y1" -> y1 = readNumber(parser, value);
+        case "x2" -> x2 = readNumber(parser, value);
+        case "y2" -> y2 = readNumber(parser, value);
+        case "tolerance" -> {
+          if (header != null) {
+            header[0] = readNumber(parser, value);
+          } else {
+            parser.skipChildren();
           }
-          segments.add(new Segment(x1, y1, x2, y2, id));
         }
+        default -> parser.skipChildren();
       }
-      return new ProjectDefinition(tolerance, List.copyOf(segments));
     }
+    return new RawSegment(id, x1, y1, x2, y2);
+  }
+
+  // Same coercions as the data-binding reader this replaced: numeric strings are parsed and null reads as 0.
+  // Anything else, including objects and arrays, is rejected instead of silently becoming 0.
+  private static double readNumber(JsonParser parser, JsonToken value) throws IOException {
+    return switch (value) {
+      case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+      case VALUE_NULL -> 0d;
+      case VALUE_STRING -> {
+        String text = parser.getText().trim();
+        if (text.isEmpty()) {
+          yield 0d;
+        }
+        try {
+          yield Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+          throw new JsonParseException(parser, "Expected a number for " + parser.currentName());
+        }
+      }
+      default -> throw new JsonParseException(parser, "Expected a number for " + parser.currentName());
+    };
   }
 
-  public void save(Path path, double tolerance, List<Segment> segments) throws IOException {
-    ProjectDto dto = new ProjectDto();
-    dto.tolerance = tolerance;
-    dto.segments = new ArrayList<>();
-    for (Segment segment : segments) {
-      SegmentDto entry = new SegmentDto();
-      entry.id = segment.id();
-      entry.x1 = segment.x1();
-      entry.y1 = segment.y1();
-      entry.x2 = segment.x2();
-      entry.y2 = segment.y2();
-      dto.segments.add(entry);
+  private static String readId(JsonParser parser, JsonToken value) throws IOException {
+    if (value == JsonToken.VALUE_NULL) {
+      return null;
     }
-    try (var writer = Files.newBufferedWriter(path)) {
-      mapper.writerWithDefaultPrettyPrinter().writeValue(writer, dto);
+    if (!value.isScalarValue()) {
+      throw new JsonParseException(parser, "Expected a scalar id");
     }
+    return parser.getText();
+  }
+
+  private static double normalizeTolerance(double tolerance) {
+    return tolerance > 0 ? tolerance : DEFAULT_TOLERANCE;
+  }
+
+  private final class SegmentFilter {
+    private final double tolerance;
+    private final Consumer<Segment> sink;
+    private final SegmentKeySet seen;
+    private int counter;
+
+    SegmentFilter(double tolerance, Consumer<Segment> sink) {
+      this.tolerance = tolerance;
+      this.sink = sink;
+      this.seen = new SegmentKeySet(tolerance);
+    }
+
+    void accept(RawSegment raw) {
+      RawSegment valid = validate(raw, tolerance);
+      if (valid != null) {
+        admit(valid);
+      }
+    }
+
+    void admit(RawSegment valid) {
+      if (!seen.add(valid.x1(), valid.y1(), valid.x2(), valid.y2())) {
+        return;
+      }
+      String id = valid.id();
+      if (id == null || id.isBlank()) {
+        id = "s" + (++counter);
+      }
+      sink.accept(new Segment(valid.x1(), valid.y1(), valid.x2(), valid.y2(), id));
+    }
+  }
+
+  private RawSegment validate(RawSegment raw, double tolerance) {
+    double x1 = requireFinite(raw.x1(), "x1");
+    double y1 = requireFinite(raw.y1(), "y1");
+    double x2 = requireFinite(raw.x2(), "x2");
+    double y2 = requireFinite(raw.y2(), "y2");
+    return isZeroLength(x1, y1, x2, y2, tolerance) ? null : raw;
   }
 
   private double requireFinite(double value, String label) {
@@ -85,33 +597,70 @@ public final class ProjectIO {
     return Math.hypot(dx, dy) <= tol;
   }
 
-  private long segmentKey(double x1, double y1, double x2, double y2, double tol) {
-    long a = coordinateKey(x1, y1, tol);
-    long b = coordinateKey(x2, y2, tol);
-    long lo = Math.min(a, b);
-    long hi = Math.max(a, b);
-    return lo ^ (hi * 1_000_000_007L);
-  }
+  private record RawSegment(String id, double x1, double y1, double x2, double y2) {}
 
-  private long coordinateKey(double x, double y, double tol) {
-    double scale = tol > 0 ? 1d / tol : 1e9;
-    long qx = Math.round(x * scale);
-    long qy = Math.round(y * scale);
-    return (qx << 32) ^ (qy & 0xffffffffL);
-  }
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
 
-  @JsonIgnoreProperties(ignoreUnknown = true)
-  private static final class ProjectDto {
-    public double tolerance;
-    public List<SegmentDto> segments;
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
   }
 
-  @JsonIgnoreProperties(ignoreUnknown = true)
-  private static final class SegmentDto {
-    public String id;
-    public double x1;
-    public double y1;
-    public double x2;
-    public double y2;
+  private static final class BoundedInputStream extends FilterInputStream {
+    private final long limit;
+    private long consumed;
+
+    BoundedInputStream(InputStream in, long limit) {
+      super(in);
+      this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = super.read();
+      if (value >= 0) {
+        count(1);
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) {
+        count(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count(skipped);
+      return skipped;
+    }
+
+    private void count(long bytes) throws InputTooLargeException {
+      consumed += bytes;
+      if (consumed > limit) {
+        throw new InputTooLargeException(limit);
+      }
+    }
   }
 }
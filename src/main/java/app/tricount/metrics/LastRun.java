@@ -0,0 +1,7 @@
+package app.tricount.metrics;
+
+// Sizes of one finished count, published as a whole so JMX readers never mix two runs. Planar sizes are
+// before collinear contraction; vertices and edges are the contracted graph the triangles were read from.
+public record LastRun(int segments, int planarVertices, int planarEdges, int vertices, int edges, int triangles) {
+  public static final LastRun NONE = new LastRun(0, 0, 0, 0, 0, 0);
+}
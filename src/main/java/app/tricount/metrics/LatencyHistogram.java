@@ -0,0 +1,88 @@
+package app.tricount.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free histogram over fixed buckets doubling from 100 us; the last bucket collects everything slower.
+public final class LatencyHistogram {
+  private static final long[] UPPER_BOUNDS_NANOS = new long[18];
+
+  static {
+    for (int i = 0; i < UPPER_BOUNDS_NANOS.length; i++) {
+      UPPER_BOUNDS_NANOS[i] = 100_000L << i;
+    }
+  }
+
+  private final LongAdder[] buckets = new LongAdder[UPPER_BOUNDS_NANOS.length + 1];
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public static double[] upperBoundsMillis() {
+    return Arrays.stream(UPPER_BOUNDS_NANOS).mapToDouble(bound -> bound / 1e6).toArray();
+  }
+
+  public void record(long nanos) {
+    int index = Arrays.binarySearch(UPPER_BOUNDS_NANOS, nanos);
+    buckets[index >= 0 ? index : -index - 1].increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  public long[] counts() {
+    long[] counts = new long[buckets.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  public long count() {
+    long total = 0;
+    for (LongAdder bucket : buckets) {
+      total += bucket.sum();
+    }
+    return total;
+  }
+
+  public double meanMillis() {
+    long count = count();
+    return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+  }
+
+  public double maxMillis() {
+    return maxNanos.get() / 1e6;
+  }
+
+  // Upper bound of the bucket holding the given quantile; the overflow bucket reports the maximum.
+  public double percentileMillis(double quantile) {
+    long[] counts = counts();
+    long total = Arrays.stream(counts).sum();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < UPPER_BOUNDS_NANOS.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return UPPER_BOUNDS_NANOS[i] / 1e6;
+      }
+    }
+    return maxMillis();
+  }
+
+  public void reset() {
+    for (LongAdder bucket : buckets) {
+      bucket.reset();
+    }
+    totalNanos.reset();
+    maxNanos.reset();
+  }
+}
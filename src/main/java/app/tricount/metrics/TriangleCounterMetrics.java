@@ -0,0 +1,265 @@
+package app.tricount.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide counters behind the app.tricount:type=TriangleCounter MXBean. Every update is a LongAdder
+// increment or a single reference write, so collection stays on in production.
+public final class TriangleCounterMetrics implements TriangleCounterMetricsMXBean {
+  public static final String OBJECT_NAME = "app.tricount:type=TriangleCounter";
+  public static final List<String> STAGES = List.of("planarize", "contract", "triangles");
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder submissions = new LongAdder();
+  private final LongAdder superseded = new LongAdder();
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+  private final LongAdder watchRecounts = new LongAdder();
+  private final LongAdder watchUnchanged = new LongAdder();
+  private final LongAdder batchFiles = new LongAdder();
+  private final LongAdder batchFailures = new LongAdder();
+  private final LatencyHistogram recompute = new LatencyHistogram();
+  private final Map<String, LatencyHistogram> stages = new LinkedHashMap<>();
+  private final AtomicReference<LastRun> lastRun = new AtomicReference<>(LastRun.NONE);
+
+  TriangleCounterMetrics() {
+    for (String stage : STAGES) {
+      stages.put(stage, new LatencyHistogram());
+    }
+  }
+
+  public static TriangleCounterMetrics get() {
+    return Holder.INSTANCE;
+  }
+
+  public void requested(boolean coalescedWithPending) {
+    requests.increment();
+    if (coalescedWithPending) {
+      coalesced.increment();
+    }
+  }
+
+  public void submitted(boolean supersedesRunning) {
+    submissions.increment();
+    if (supersedesRunning) {
+      superseded.increment();
+    }
+  }
+
+  public void started() {
+    inFlight.increment();
+  }
+
+  public void finished(long nanos, boolean success, boolean current) {
+    inFlight.decrement();
+    if (!current) {
+      return;
+    }
+    recompute.record(nanos);
+    if (success) {
+      delivered.increment();
+    } else {
+      failed.increment();
+    }
+  }
+
+  public void stage(String stage, long nanos) {
+    LatencyHistogram histogram = stages.get(stage);
+    if (histogram == null) {
+      throw new IllegalArgumentException("Unknown stage: " + stage);
+    }
+    histogram.record(nanos);
+  }
+
+  public void counted(LastRun run) {
+    lastRun.set(run);
+  }
+
+  public void watchRecount(boolean recounted) {
+    (recounted ? watchRecounts : watchUnchanged).increment();
+  }
+
+  public void batchFile(boolean ok) {
+    batchFiles.increment();
+    if (!ok) {
+      batchFailures.increment();
+    }
+  }
+
+  @Override
+  public long getRecomputeRequests() {
+    return requests.sum();
+  }
+
+  @Override
+  public long getCoalescedRequests() {
+    return coalesced.sum();
+  }
+
+  @Override
+  public long getSubmissions() {
+    return submissions.sum();
+  }
+
+  @Override
+  public long getSupersededRuns() {
+    return superseded.sum();
+  }
+
+  @Override
+  public long getDeliveredRuns() {
+    return delivered.sum();
+  }
+
+  @Override
+  public long getFailedRuns() {
+    return failed.sum();
+  }
+
+  @Override
+  public long getInFlightRuns() {
+    return inFlight.sum();
+  }
+
+  @Override
+  public long[] getRecomputeLatencyBuckets() {
+    return recompute.counts();
+  }
+
+  @Override
+  public double[] getLatencyBucketUpperBoundsMillis() {
+    return LatencyHistogram.upperBoundsMillis();
+  }
+
+  @Override
+  public double getRecomputeLatencyMeanMillis() {
+    return recompute.meanMillis();
+  }
+
+  @Override
+  public double getRecomputeLatencyP50Millis() {
+    return recompute.percentileMillis(0.5);
+  }
+
+  @Override
+  public double getRecomputeLatencyP99Millis() {
+    return recompute.percentileMillis(0.99);
+  }
+
+  @Override
+  public Map<String, Long> getStageCounts() {
+    Map<String, Long> counts = new LinkedHashMap<>();
+    stages.forEach((stage, histogram) -> counts.put(stage, histogram.count()));
+    return counts;
+  }
+
+  @Override
+  public Map<String, Double> getStageMeanMillis() {
+    return perStage(LatencyHistogram::meanMillis);
+  }
+
+  @Override
+  public Map<String, Double> getStageP99Millis() {
+    return perStage(histogram -> histogram.percentileMillis(0.99));
+  }
+
+  @Override
+  public LastRun getLastRun() {
+    return lastRun.get();
+  }
+
+  @Override
+  public int getSegments() {
+    return lastRun.get().segments();
+  }
+
+  @Override
+  public int getPlanarVertices() {
+    return lastRun.get().planarVertices();
+  }
+
+  @Override
+  public int getPlanarEdges() {
+    return lastRun.get().planarEdges();
+  }
+
+  @Override
+  public int getVertices() {
+    return lastRun.get().vertices();
+  }
+
+  @Override
+  public int getEdges() {
+    return lastRun.get().edges();
+  }
+
+  @Override
+  public int getTriangles() {
+    return lastRun.get().triangles();
+  }
+
+  @Override
+  public long getWatchRecounts() {
+    return watchRecounts.sum();
+  }
+
+  @Override
+  public long getWatchUnchanged() {
+    return watchUnchanged.sum();
+  }
+
+  @Override
+  public long getBatchFiles() {
+    return batchFiles.sum();
+  }
+
+  @Override
+  public long getBatchFailures() {
+    return batchFailures.sum();
+  }
+
+  // In-flight runs are live state, not history, so they survive a reset.
+  @Override
+  public void reset() {
+    for (LongAdder counter : List.of(
+        requests, coalesced, submissions, superseded, delivered, failed, watchRecounts, watchUnchanged, batchFiles,
+        batchFailures)) {
+      counter.reset();
+    }
+    recompute.reset();
+    stages.values().forEach(LatencyHistogram::reset);
+  }
+
+  private Map<String, Double> perStage(ToDoubleFunction<LatencyHistogram> value) {
+    Map<String, Double> result = new LinkedHashMap<>();
+    stages.forEach((stage, histogram) -> result.put(stage, value.applyAsDouble(histogram)));
+    return result;
+  }
+
+  private static final class Holder {
+    private static final TriangleCounterMetrics INSTANCE = register(new TriangleCounterMetrics());
+
+    private static TriangleCounterMetrics register(TriangleCounterMetrics metrics) {
+      try {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+          server.registerMBean(metrics, name);
+        }
+      } catch (JMException e) {
+        System.err.println("Triangle counter metrics are not available over JMX: " + e.getMessage());
+      }
+      return metrics;
+    }
+  }
+}
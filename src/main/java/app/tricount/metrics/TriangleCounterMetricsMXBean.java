@@ -0,0 +1,59 @@
+package app.tricount.metrics;
+
+import java.util.Map;
+
+public interface TriangleCounterMetricsMXBean {
+  long getRecomputeRequests();
+
+  long getCoalescedRequests();
+
+  long getSubmissions();
+
+  long getSupersededRuns();
+
+  long getDeliveredRuns();
+
+  long getFailedRuns();
+
+  long getInFlightRuns();
+
+  long[] getRecomputeLatencyBuckets();
+
+  double[] getLatencyBucketUpperBoundsMillis();
+
+  double getRecomputeLatencyMeanMillis();
+
+  double getRecomputeLatencyP50Millis();
+
+  double getRecomputeLatencyP99Millis();
+
+  Map<String, Long> getStageCounts();
+
+  Map<String, Double> getStageMeanMillis();
+
+  Map<String, Double> getStageP99Millis();
+
+  LastRun getLastRun();
+
+  int getSegments();
+
+  int getPlanarVertices();
+
+  int getPlanarEdges();
+
+  int getVertices();
+
+  int getEdges();
+
+  int getTriangles();
+
+  long getWatchRecounts();
+
+  long getWatchUnchanged();
+
+  long getBatchFiles();
+
+  long getBatchFailures();
+
+  void reset();
+}
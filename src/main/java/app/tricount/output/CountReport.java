@@ -0,0 +1,97 @@
+package app.tricount.output;
+
+import app.tricount.graph.Graph;
+import java.util.List;
+
+public final class CountReport {
+  private final int segmentCount;
+  private final Graph graph;
+  private final List<int[]> triangles;
+  private VertexNames names;
+  private int[] edgeOrder;
+  private int[] triangleOrder;
+
+  public CountReport(int segmentCount, Graph graph, List<int[]> triangles) {
+    this.segmentCount = segmentCount;
+    this.graph = graph;
+    this.triangles = triangles;
+  }
+
+  public int segmentCount() {
+    return segmentCount;
+  }
+
+  public Graph graph() {
+    return graph;
+  }
+
+  public List<int[]> triangles() {
+    return triangles;
+  }
+
+  public VertexNames names() {
+    if (names == null) {
+      names = new VertexNames(graph.vertexCount());
+    }
+    return names;
+  }
+
+  public int[] edgeOrder() {
+    if (edgeOrder == null) {
+      VertexNames vertexNames = names();
+      int count = graph.edgeCount();
+      int[] first = new int[count];
+      int[] second = new int[count];
+      for (int e = 0; e < count; e++) {
+        int u = vertexNames.rank(graph.edgeU(e));
+        int v = vertexNames.rank(graph.edgeV(e));
+        first[e] = Math.min(u, v);
+        second[e] = Math.max(u, v);
+      }
+      edgeOrder = RadixSort.order(count, first, second);
+    }
+    return edgeOrder;
+  }
+
+  public int[] triangleOrder() {
+    if (triangleOrder == null) {
+      VertexNames vertexNames = names();
+      int count = triangles.size();
+      int[] low = new int[count];
+      int[] mid = new int[count];
+      int[] high = new int[count];
+      for (int t = 0; t < count; t++) {
+        int[] triangle = triangles.get(t);
+        int a = vertexNames.rank(triangle[0]);
+        int b = vertexNames.rank(triangle[1]);
+        int c = vertexNames.rank(triangle[2]);
+        low[t] = Math.min(a, Math.min(b, c));
+        high[t] = Math.max(a, Math.max(b, c));
+        mid[t] = a ^ b ^ c ^ low[t] ^ high[t];
+      }
+      triangleOrder = RadixSort.order(count, low, mid, high);
+    }
+    return triangleOrder;
+  }
+
+  public int[] canonicalTriangle(int index) {
+    int[] triangle = triangles.get(index).clone();
+    VertexNames vertexNames = names();
+    for (int i = 1; i < triangle.length; i++) {
+      for (int j = i; j > 0 && vertexNames.rank(triangle[j - 1]) > vertexNames.rank(triangle[j]); j--) {
+        int tmp = triangle[j];
+        triangle[j] = triangle[j - 1];
+        triangle[j - 1] = tmp;
+      }
+    }
+    return triangle;
+  }
+
+  public double area(int[] triangle) {
+    double area2 = Math.abs(
+        graph.x(triangle[0]) * (graph.y(triangle[1]) - graph.y(triangle[2]))
+            + graph.x(triangle[1]) * (graph.y(triangle[2]) - graph.y(triangle[0]))
+            + graph.x(triangle[2]) * (graph.y(triangle[0]) - graph.y(triangle[1])));
+    return 0.5 * area2;
+  }
+}
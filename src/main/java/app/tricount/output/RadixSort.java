@@ -0,0 +1,47 @@
+package app.tricount.output;
+
+import java.util.Arrays;
+
+public final class RadixSort {
+  private static final int DIGIT_BITS = 8;
+  private static final int RADIX = 1 << DIGIT_BITS;
+  private static final int MASK = RADIX - 1;
+
+  private RadixSort() {}
+
+  public static int[] order(int count, int[]... keys) {
+    int[] order = new int[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+    }
+    int[] scratch = new int[count];
+    int[] buckets = new int[RADIX + 1];
+    for (int k = keys.length - 1; k >= 0; k--) {
+      int[] key = keys[k];
+      for (int shift = 0; shift < Integer.SIZE; shift += DIGIT_BITS) {
+        Arrays.fill(buckets, 0);
+        for (int i = 0; i < count; i++) {
+          buckets[digit(key[order[i]], shift) + 1]++;
+        }
+        if (count == 0 || buckets[digit(key[order[0]], shift) + 1] == count) {
+          continue;
+        }
+        for (int b = 0; b < RADIX; b++) {
+          buckets[b + 1] += buckets[b];
+        }
+        for (int i = 0; i < count; i++) {
+          int index = order[i];
+          scratch[buckets[digit(key[index], shift)]++] = index;
+        }
+        int[] swap = order;
+        order = scratch;
+        scratch = swap;
+      }
+    }
+    return order;
+  }
+
+  private static int digit(int value, int shift) {
+    return ((value ^ Integer.MIN_VALUE) >>> shift) & MASK;
+  }
+}
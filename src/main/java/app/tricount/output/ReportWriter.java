@@ -0,0 +1,214 @@
+package app.tricount.output;
+
+import app.tricount.graph.Graph;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+
+public final class ReportWriter {
+  public enum Format {
+    TEXT,
+    JSON,
+    CSV,
+    BINARY;
+
+    public static Format parse(String value) {
+      return switch (value.toLowerCase(Locale.ROOT)) {
+        case "text" -> TEXT;
+        case "json" -> JSON;
+        case "csv" -> CSV;
+        case "binary" -> BINARY;
+        default -> throw new IllegalArgumentException("Unknown output format: " + value);
+      };
+    }
+  }
+
+  static final byte[] BINARY_MAGIC = {'T', 'R', 'I', 'C', 'R', 'E', 'S', 1};
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private final JsonFactory json = new JsonFactory();
+
+  public ReportWriter() {
+    json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  public void write(CountReport report, Format format, OutputStream out) throws IOException {
+    switch (format) {
+      case TEXT -> writeText(report, out);
+      case JSON -> writeJson(report, out);
+      case CSV -> writeCsv(report, out);
+      case BINARY -> writeBinary(report, out);
+      default -> throw new IllegalArgumentException("Unsupported format " + format);
+    }
+    out.flush();
+  }
+
+  private void writeText(CountReport report, OutputStream out) throws IOException {
+    Graph graph = report.graph();
+    VertexNames names = report.names();
+    List<int[]> triangles = report.triangles();
+    // Like CSV, text output is the same on every platform: UTF-8, '\n' and '.' decimals.
+    String nl = "\n";
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_BYTES);
+    Formatter formatter = new Formatter(writer, Locale.ROOT);
+    writer.append("Segments: ").append(Integer.toString(report.segmentCount())).append(nl);
+    writer.append("Vertices: ").append(Integer.toString(graph.vertexCount())).append(nl);
+    writer.append("Edges: ").append(Integer.toString(graph.edgeCount())).append(nl);
+    writer.append("Triangles: ").append(Integer.toString(triangles.size())).append(nl);
+    writer.append(nl);
+    writer.append("Vertices:").append(nl);
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      formatter.format("  %s (id=%d): (%.6f, %.6f)\n", names.name(v), v, graph.x(v), graph.y(v));
+    }
+    writer.append(nl);
+    writer.append("Edges:").append(nl);
+    for (int e : report.edgeOrder()) {
+      int u = graph.edgeU(e);
+      int v = graph.edgeV(e);
+      writer.append("  ").append(names.name(u)).append('-').append(names.name(v));
+      writer.append(" (ids=").append(Integer.toString(u)).append('-').append(Integer.toString(v)).append(')');
+      writer.append(nl);
+    }
+    writer.append(nl);
+    writer.append("Triangles:").append(nl);
+    for (int t : report.triangleOrder()) {
+      int[] triangle = triangles.get(t);
+      writer.append("  ");
+      for (int vertex : triangle) {
+        writer.append(names.name(vertex));
+      }
+      writer.append(" (ids=");
+      for (int i = 0; i < triangle.length; i++) {
+        if (i > 0) {
+          writer.append(',');
+        }
+        writer.append(Integer.toString(triangle[i]));
+      }
+      formatter.format(") area=%.6f\n", report.area(triangle));
+    }
+    formatter.flush();
+  }
+
+  private void writeJson(CountReport report, OutputStream out) throws IOException {
+    Graph graph = report.graph();
+    VertexNames names = report.names();
+    try (JsonGenerator generator = json.createGenerator(out, JsonEncoding.UTF8)) {
+      generator.writeStartObject();
+      generator.writeNumberField("segments", report.segmentCount());
+      generator.writeNumberField("vertexCount", graph.vertexCount());
+      generator.writeNumberField("edgeCount", graph.edgeCount());
+      generator.writeNumberField("triangleCount", report.triangles().size());
+      generator.writeArrayFieldStart("vertices");
+      for (int v = 0; v < graph.vertexCount(); v++) {
+        generator.writeStartObject();
+        generator.writeNumberField("id", v);
+        generator.writeStringField("name", names.name(v));
+        generator.writeNumberField("x", graph.x(v));
+        generator.writeNumberField("y", graph.y(v));
+        generator.writeEndObject();
+      }
+      generator.writeEndArray();
+      generator.writeArrayFieldStart("edges");
+      for (int e : report.edgeOrder()) {
+        int[] edge = canonicalEdge(graph, names, e);
+        generator.writeArray(edge, 0, 2);
+      }
+      generator.writeEndArray();
+      generator.writeArrayFieldStart("triangles");
+      for (int t : report.triangleOrder()) {
+        int[] triangle = report.canonicalTriangle(t);
+        generator.writeStartObject();
+        generator.writeStringField("name", names.name(triangle[0]) + names.name(triangle[1]) + names.name(triangle[2]));
+        generator.writeFieldName("ids");
+        generator.writeArray(triangle, 0, triangle.length);
+        generator.writeNumberField("area", report.area(triangle));
+        generator.writeEndObject();
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+
+  private void writeCsv(CountReport report, OutputStream out) throws IOException {
+    Graph graph = report.graph();
+    VertexNames names = report.names();
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_BYTES);
+    writer.write("type,name,ids,x,y,area\n");
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      writer.append("vertex,").append(names.name(v)).append(',').append(Integer.toString(v)).append(',');
+      writer.append(Double.toString(graph.x(v))).append(',').append(Double.toString(graph.y(v))).append(",\n");
+    }
+    for (int e : report.edgeOrder()) {
+      int[] edge = canonicalEdge(graph, names, e);
+      writer.append("edge,").append(names.name(edge[0])).append('-').append(names.name(edge[1])).append(',');
+      writer.append(Integer.toString(edge[0])).append('-').append(Integer.toString(edge[1])).append(",,,\n");
+    }
+    for (int t : report.triangleOrder()) {
+      int[] triangle = report.canonicalTriangle(t);
+      writer.append("triangle,");
+      writer.append(names.name(triangle[0])).append(names.name(triangle[1])).append(names.name(triangle[2]));
+      writer.append(',').append(Integer.toString(triangle[0])).append('-').append(Integer.toString(triangle[1]));
+      writer.append('-').append(Integer.toString(triangle[2])).append(",,,");
+      writer.append(Double.toString(report.area(triangle))).append('\n');
+    }
+    writer.flush();
+  }
+
+  private void writeBinary(CountReport report, OutputStream out) throws IOException {
+    Graph graph = report.graph();
+    VertexNames names = report.names();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(BINARY_MAGIC);
+    buffer.putInt(report.segmentCount());
+    buffer.putInt(graph.vertexCount());
+    buffer.putInt(graph.edgeCount());
+    buffer.putInt(report.triangles().size());
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      ensureCapacity(out, buffer, 2 * Double.BYTES);
+      buffer.putDouble(graph.x(v));
+      buffer.putDouble(graph.y(v));
+    }
+    for (int e : report.edgeOrder()) {
+      int[] edge = canonicalEdge(graph, names, e);
+      ensureCapacity(out, buffer, 2 * Integer.BYTES);
+      buffer.putInt(edge[0]);
+      buffer.putInt(edge[1]);
+    }
+    for (int t : report.triangleOrder()) {
+      int[] triangle = report.canonicalTriangle(t);
+      ensureCapacity(out, buffer, 3 * Integer.BYTES);
+      buffer.putInt(triangle[0]);
+      buffer.putInt(triangle[1]);
+      buffer.putInt(triangle[2]);
+    }
+    flush(out, buffer);
+  }
+
+  private static int[] canonicalEdge(Graph graph, VertexNames names, int edge) {
+    int u = graph.edgeU(edge);
+    int v = graph.edgeV(edge);
+    return names.rank(u) <= names.rank(v) ? new int[] {u, v} : new int[] {v, u};
+  }
+
+  private static void ensureCapacity(OutputStream out, ByteBuffer buffer, int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush(out, buffer);
+    }
+  }
+
+  private static void flush(OutputStream out, ByteBuffer buffer) throws IOException {
+    out.write(buffer.array(), 0, buffer.position());
+    buffer.clear();
+  }
+}
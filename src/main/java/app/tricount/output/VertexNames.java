@@ -0,0 +1,47 @@
+package app.tricount.output;
+
+import java.util.Arrays;
+
+public final class VertexNames {
+  private final String[] names;
+  private final int[] ranks;
+
+  public VertexNames(int count) {
+    names = new String[count];
+    for (int i = 0; i < count; i++) {
+      names[i] = nameFor(i);
+    }
+    Integer[] byName = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      byName[i] = i;
+    }
+    Arrays.sort(byName, (a, b) -> names[a].compareTo(names[b]));
+    ranks = new int[count];
+    for (int rank = 0; rank < count; rank++) {
+      ranks[byName[rank]] = rank;
+    }
+  }
+
+  public String name(int vertex) {
+    return names[vertex];
+  }
+
+  public int rank(int vertex) {
+    return ranks[vertex];
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  public static String nameFor(int id) {
+    StringBuilder sb = new StringBuilder();
+    int value = id;
+    while (value >= 0) {
+      int rem = value % 26;
+      sb.append((char) ('A' + rem));
+      value = (value / 26) - 1;
+    }
+    return sb.reverse().toString();
+  }
+}
@@ -0,0 +1,179 @@
+package app.tricount.profile;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class StageProfiler {
+  public interface StageBody<T, E extends Exception> {
+    T run() throws E;
+  }
+
+  public static final class Stage {
+    private final String name;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final Map<String, Long> sizes = new LinkedHashMap<>();
+
+    Stage(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+      this.name = name;
+      this.wallNanos = wallNanos;
+      this.cpuNanos = cpuNanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public long wallNanos() {
+      return wallNanos;
+    }
+
+    public long cpuNanos() {
+      return cpuNanos;
+    }
+
+    public long allocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public Map<String, Long> sizes() {
+      return Collections.unmodifiableMap(sizes);
+    }
+  }
+
+  private static final StageProfiler DISABLED = new StageProfiler(false);
+
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final com.sun.management.ThreadMXBean allocations;
+  private final boolean cpuSupported;
+  private final boolean enabled;
+  private final List<Stage> stages = new ArrayList<>();
+
+  // Turns on CPU and allocation tracking JVM-wide, so only create one when a profile was asked for.
+  public StageProfiler() {
+    this(true);
+  }
+
+  // Runs stages without measuring them and leaves the JVM's thread accounting untouched.
+  public static StageProfiler disabled() {
+    return DISABLED;
+  }
+
+  private StageProfiler(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      cpuSupported = false;
+      allocations = null;
+      return;
+    }
+    cpuSupported = threads.isCurrentThreadCpuTimeSupported();
+    if (cpuSupported && !threads.isThreadCpuTimeEnabled()) {
+      threads.setThreadCpuTimeEnabled(true);
+    }
+    com.sun.management.ThreadMXBean extended = null;
+    if (threads instanceof com.sun.management.ThreadMXBean candidate
+        && candidate.isThreadAllocatedMemorySupported()) {
+      if (!candidate.isThreadAllocatedMemoryEnabled()) {
+        candidate.setThreadAllocatedMemoryEnabled(true);
+      }
+      extended = candidate;
+    }
+    allocations = extended;
+  }
+
+  public <T, E extends Exception> T measure(String stage, StageBody<T, E> body) throws E {
+    if (!enabled) {
+      return body.run();
+    }
+    long cpuStart = cpuTime();
+    long allocatedStart = allocatedBytes();
+    long wallStart = System.nanoTime();
+    T result = body.run();
+    long wall = System.nanoTime() - wallStart;
+    long cpu = cpuStart >= 0 ? cpuTime() - cpuStart : -1;
+    long allocated = allocatedStart >= 0 ? allocatedBytes() - allocatedStart : -1;
+    stages.add(new Stage(stage, wall, cpu, allocated));
+    return result;
+  }
+
+  public void size(String name, long value) {
+    if (!enabled) {
+      return;
+    }
+    if (stages.isEmpty()) {
+      throw new IllegalStateException("No stage has been measured yet");
+    }
+    stages.get(stages.size() - 1).sizes.put(name, value);
+  }
+
+  public List<Stage> stages() {
+    return Collections.unmodifiableList(stages);
+  }
+
+  public void writeJson(OutputStream out, String input) throws IOException {
+    JsonFactory factory = new JsonFactory();
+    factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    long wall = 0;
+    long cpu = 0;
+    long allocated = 0;
+    try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+      generator.writeStartObject();
+      generator.writeStringField("input", input);
+      generator.writeArrayFieldStart("stages");
+      for (Stage stage : stages) {
+        generator.writeStartObject();
+        generator.writeStringField("stage", stage.name());
+        writeCosts(generator, stage.wallNanos(), stage.cpuNanos(), stage.allocatedBytes());
+        for (Map.Entry<String, Long> entry : stage.sizes.entrySet()) {
+          generator.writeNumberField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+        wall += stage.wallNanos();
+        cpu = cpu < 0 || stage.cpuNanos() < 0 ? -1 : cpu + stage.cpuNanos();
+        allocated = allocated < 0 || stage.allocatedBytes() < 0 ? -1 : allocated + stage.allocatedBytes();
+      }
+      generator.writeEndArray();
+      generator.writeObjectFieldStart("total");
+      writeCosts(generator, wall, cpu, allocated);
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+    out.write('\n');
+    out.flush();
+  }
+
+  private static void writeCosts(JsonGenerator generator, long wallNanos, long cpuNanos, long allocatedBytes)
+      throws IOException {
+    generator.writeNumberField("wallMs", millis(wallNanos));
+    if (cpuNanos >= 0) {
+      generator.writeNumberField("cpuMs", millis(cpuNanos));
+    }
+    if (allocatedBytes >= 0) {
+      generator.writeNumberField("allocatedBytes", allocatedBytes);
+    }
+  }
+
+  private long cpuTime() {
+    return cpuSupported ? threads.getCurrentThreadCpuTime() : -1;
+  }
+
+  private long allocatedBytes() {
+    return allocations != null ? allocations.getCurrentThreadAllocatedBytes() : -1;
+  }
+
+  private static double millis(long nanos) {
+    return Math.round(nanos / 1_000d) / 1_000d;
+  }
+}
@@ -0,0 +1,320 @@
+package app.tricount.server;
+
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.io.InputTooLargeException;
+import app.tricount.io.ProjectDefinition;
+import app.tricount.io.ProjectIO;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class CountServer implements Closeable {
+  public record Options(int port, int workers, int queueCapacity, long budgetMillis, long maxBodyBytes) {
+    public Options {
+      if (workers < 1) {
+        throw new IllegalArgumentException("Worker count must be positive");
+      }
+      if (queueCapacity < 0 || budgetMillis < 0 || maxBodyBytes < 0) {
+        throw new IllegalArgumentException("Queue capacity, budget and body limit must not be negative");
+      }
+    }
+
+    public static Options defaults() {
+      int workers = Runtime.getRuntime().availableProcessors();
+      return new Options(8080, workers, workers * 4, 10_000, 256L << 20);
+    }
+
+    public Options withPort(int value) {
+      return new Options(value, workers, queueCapacity, budgetMillis, maxBodyBytes);
+    }
+
+    public Options withWorkers(int value) {
+      return new Options(port, value, queueCapacity, budgetMillis, maxBodyBytes);
+    }
+
+    public Options withQueueCapacity(int value) {
+      return new Options(port, workers, value, budgetMillis, maxBodyBytes);
+    }
+
+    public Options withBudgetMillis(long value) {
+      return new Options(port, workers, queueCapacity, value, maxBodyBytes);
+    }
+  }
+
+  private final Options options;
+  private final TriangleCounter counter;
+  private final ProjectIO io = new ProjectIO();
+  private final JsonFactory json = new JsonFactory();
+  private final HttpServer server;
+  // Platform threads: the JDK server reads bodies inside synchronized blocks, which would pin virtual threads
+  // to their carriers so that a few slow uploads stall every other request. Admission bounds how many
+  // handlers do real work; the rest answer 503 straight away.
+  private final ExecutorService handlers;
+  private final ThreadPoolExecutor workers;
+  // One permit per worker and queue slot, taken before the body is read, so bodies and parsed projects in
+  // memory are bounded by the same limit as the counting pool.
+  private final Semaphore admissions;
+
+  private CountServer(HttpServer server, TriangleCounter counter, Options options) {
+    this.server = server;
+    this.counter = counter;
+    this.options = options;
+    this.admissions = new Semaphore(options.workers() + options.queueCapacity());
+    AtomicInteger threadIds = new AtomicInteger();
+    BlockingQueue<Runnable> queue = options.queueCapacity() > 0
+        ? new ArrayBlockingQueue<>(options.queueCapacity())
+        : new SynchronousQueue<>();
+    this.workers = new ThreadPoolExecutor(
+        options.workers(),
+        options.workers(),
+        0L,
+        TimeUnit.MILLISECONDS,
+        queue,
+        r -> {
+          Thread thread = new Thread(r, "count-worker-" + threadIds.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    AtomicInteger handlerIds = new AtomicInteger();
+    this.handlers = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "count-handler-" + handlerIds.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    server.setExecutor(handlers);
+    server.createContext("/count", this::handleCount);
+    server.createContext("/health", this::handleHealth);
+  }
+
+  public static CountServer start(TriangleCounter counter, Options options) throws IOException {
+    InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), options.port());
+    CountServer countServer = new CountServer(HttpServer.create(address, 0), counter, options);
+    countServer.server.start();
+    return countServer;
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    workers.shutdownNow();
+    handlers.shutdownNow();
+  }
+
+  private void handleHealth(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      byte[] body = "ok\n".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+    }
+  }
+
+  private void handleCount(HttpExchange exchange) throws IOException {
+    long started = System.nanoTime();
+    try (exchange) {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        sendError(exchange, 405, "Use POST with a project body");
+        return;
+      }
+      if (!admissions.tryAcquire()) {
+        sendBusy(exchange);
+        return;
+      }
+      // A count that outlives its request still holds the permit; it releases it when it stops running.
+      AtomicBoolean held = new AtomicBoolean(true);
+      Runnable release = () -> {
+        if (held.compareAndSet(true, false)) {
+          admissions.release();
+        }
+      };
+      AtomicBoolean running = new AtomicBoolean();
+      try {
+        respond(exchange, started, running, release);
+      } finally {
+        if (!running.get()) {
+          release.run();
+        }
+      }
+    }
+  }
+
+  private void respond(HttpExchange exchange, long started, AtomicBoolean running, Runnable release)
+      throws IOException {
+    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    long budgetMillis;
+    double angleTolerance;
+    boolean includeTriangles = Boolean.parseBoolean(query.getOrDefault("triangles", "false"));
+    ProjectDefinition project;
+    try {
+      budgetMillis = Long.parseLong(query.getOrDefault("budgetMs", Long.toString(options.budgetMillis())));
+      angleTolerance = Double.parseDouble(query.getOrDefault("angleTol", "1e-6"));
+      byte[] body = readBody(exchange.getRequestBody());
+      if (body == null) {
+        sendError(exchange, 413, "Request body exceeds " + options.maxBodyBytes() + " bytes");
+        return;
+      }
+      String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+      boolean ndjson = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("ndjson");
+      project = io.read(body, ndjson, options.maxBodyBytes());
+    } catch (InputTooLargeException error) {
+      sendError(exchange, 413, "Decompressed request body exceeds " + error.limit() + " bytes");
+      return;
+    } catch (IOException | RuntimeException error) {
+      sendError(exchange, 400, message(error));
+      return;
+    }
+    Future<Counted> future;
+    try {
+      future = workers.submit(() -> {
+        running.set(true);
+        try {
+          return count(project, angleTolerance, includeTriangles);
+        } finally {
+          release.run();
+        }
+      });
+    } catch (RejectedExecutionException error) {
+      sendBusy(exchange);
+      return;
+    }
+    long remaining = TimeUnit.MILLISECONDS.toNanos(budgetMillis) - (System.nanoTime() - started);
+    Counted counted;
+    try {
+      counted = future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException error) {
+      future.cancel(true);
+      workers.remove((Runnable) future);
+      sendError(exchange, 504, "Time budget of " + budgetMillis + " ms exceeded");
+      return;
+    } catch (ExecutionException error) {
+      sendError(exchange, 500, message(error.getCause()));
+      return;
+    } catch (InterruptedException error) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      sendError(exchange, 503, "Server shutting down");
+      return;
+    }
+    sendJson(exchange, 200, result(project, counted, System.nanoTime() - started, includeTriangles));
+  }
+
+  private Counted count(ProjectDefinition project, double angleTolerance, boolean includeTriangles) {
+    Graph planar = counter.buildPlanarGraph(project.store(), project.tolerance());
+    Graph contracted = counter.contractStraightVertices(planar, angleTolerance);
+    List<int[]> triangles = counter.triangles(contracted);
+    return new Counted(contracted, includeTriangles ? triangles : List.of(), triangles.size());
+  }
+
+  private byte[] result(ProjectDefinition project, Counted counted, long elapsedNanos, boolean includeTriangles)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    try (JsonGenerator generator = json.createGenerator(out, JsonEncoding.UTF8)) {
+      Graph graph = counted.graph();
+      generator.writeStartObject();
+      generator.writeNumberField("segments", project.store().size());
+      generator.writeNumberField("vertices", graph.vertexCount());
+      generator.writeNumberField("edges", graph.edgeCount());
+      generator.writeNumberField("triangles", counted.triangleCount());
+      generator.writeNumberField("elapsedMs", Math.round(elapsedNanos / 1_000d) / 1_000d);
+      if (includeTriangles) {
+        generator.writeArrayFieldStart("triangleCoordinates");
+        for (int[] triangle : counted.triangles()) {
+          generator.writeStartArray();
+          for (int vertex : triangle) {
+            generator.writeNumber(graph.x(vertex));
+            generator.writeNumber(graph.y(vertex));
+          }
+          generator.writeEndArray();
+        }
+        generator.writeEndArray();
+      }
+      generator.writeEndObject();
+    }
+    return out.toByteArray();
+  }
+
+  private byte[] readBody(InputStream in) throws IOException {
+    byte[] body = in.readNBytes((int) Math.min(options.maxBodyBytes() + 1, Integer.MAX_VALUE - 8));
+    return body.length > options.maxBodyBytes() ? null : body;
+  }
+
+  private void sendBusy(HttpExchange exchange) throws IOException {
+    exchange.getResponseHeaders().set("Retry-After", "1");
+    sendError(exchange, 503, "Server busy, try again later");
+  }
+
+  private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+    try (JsonGenerator generator = json.createGenerator(out, JsonEncoding.UTF8)) {
+      generator.writeStartObject();
+      generator.writeStringField("error", message);
+      generator.writeEndObject();
+    }
+    sendJson(exchange, status, out.toByteArray());
+  }
+
+  private void sendJson(HttpExchange exchange, int status, byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> values = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return values;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int eq = pair.indexOf('=');
+      String name = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+      String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "true";
+      values.put(name, value);
+    }
+    return values;
+  }
+
+  private static String message(Throwable error) {
+    String message = error.getMessage();
+    return message != null ? message : error.getClass().getSimpleName();
+  }
+
+  private record Counted(Graph graph, List<int[]> triangles, int triangleCount) {}
+}
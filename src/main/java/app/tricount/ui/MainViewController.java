@@ -6,21 +6,30 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.Point2D;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.ToggleButton;
 import javafx.scene.control.ToggleGroup;
 import javafx.scene.control.ToolBar;
@@ -46,6 +55,7 @@ public final class MainViewController {
   private static final double VERTEX_MERGE_TOLERANCE = 1e-4;
   private static final double VERTEX_LABEL_OFFSET = 22.0;
   private static final double TRIANGLE_COORD_TOLERANCE = 1e-6;
+  private static final int OPEN_BATCH_SIZE = 4096;
 
   @FXML
   private BorderPane root;
@@ -71,6 +81,9 @@ public final class MainViewController {
   @FXML
   private Button redoButton;
 
+  @FXML
+  private Button openButton;
+
   @FXML
   private Button exportButton;
 
@@ -78,7 +91,7 @@ public final class MainViewController {
   private Label statusLabel;
 
   @FXML
-  private ListView<String> segmentListView;
+  private ListView<Segment> segmentListView;
 
   @FXML
   private Label segmentCountLabel;
@@ -95,15 +108,22 @@ public final class MainViewController {
   @FXML
   private ProgressIndicator recomputeIndicator;
 
+  @FXML
+  private ProgressBar ioProgress;
+
   private final ObservableList<Segment> segments = FXCollections.observableArrayList();
-  private final ObservableList<String> segmentItems = FXCollections.observableArrayList();
   private final VertexRegistry vertexRegistry = new VertexRegistry(VERTEX_MERGE_TOLERANCE);
   private final Map<Segment, SegmentMetadata> segmentMetadata = new HashMap<>();
-  private final VertexLabelCalculator vertexLabelCalculator = new VertexLabelCalculator(VERTEX_LABEL_OFFSET);
-  private final List<Point2D> snapVertices = new ArrayList<>();
+  private final VertexLabelEngine vertexLabelEngine =
+      new VertexLabelEngine(new VertexLabelCalculator(VERTEX_LABEL_OFFSET));
   private final Deque<Command> undoStack = new ArrayDeque<>();
   private final Deque<Command> redoStack = new ArrayDeque<>();
   private final ProjectIO projectIO = new ProjectIO();
+  private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "project-io");
+    thread.setDaemon(true);
+    return thread;
+  });
   private final SnapResolver snapResolver =
       new SnapResolver(
           SNAP_TOLERANCE_PX,
@@ -112,6 +132,7 @@ public final class MainViewController {
           GRID_SNAP_TOLERANCE,
           SEGMENT_DIRECTION_BONUS,
           SEGMENT_ALIGNMENT_THRESHOLD);
+  private FileChooser openChooser;
   private FileChooser exportChooser;
   private File lastDirectory;
   private Window ownerWindow;
@@ -134,7 +155,15 @@ public final class MainViewController {
     segmentCanvas.setTriangleOverlayVisible(false);
     segmentCanvas.updateVertexLabels(List.of());
     if (segmentListView != null) {
-      segmentListView.setItems(segmentItems);
+      segmentListView.setCellFactory(view -> new SegmentCell());
+      segmentListView.setItems(segments);
+      segmentListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+      segmentListView.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+        if (event.getCode() == KeyCode.DELETE || event.getCode() == KeyCode.BACK_SPACE) {
+          deleteSelectedSegments();
+          event.consume();
+        }
+      });
     }
     ownerWindow = root.getScene() != null ? root.getScene().getWindow() : null;
     root.sceneProperty().addListener((obs, oldScene, newScene) -> {
@@ -143,12 +172,8 @@ public final class MainViewController {
         newScene.windowProperty().addListener((winObs, oldWindow, newWindow) -> ownerWindow = newWindow);
       }
     });
-    segments.addListener((ListChangeListener<Segment>) change -> {
-      rebuildSnapVertices();
-      updateSegmentList();
-    });
-    rebuildSnapVertices();
-    updateSegmentList();
+    vertexRegistry.addListener(vertexLabelEngine);
+    segments.addListener((ListChangeListener<Segment>) this::handleSegmentsChanged);
     configureToolbar();
     configureSidePanelActions();
     wireCanvasEvents();
@@ -196,6 +221,9 @@ public final class MainViewController {
   }
 
   private void configureSidePanelActions() {
+    if (openButton != null) {
+      openButton.setOnAction(e -> handleOpen());
+    }
     if (exportButton != null) {
       exportButton.setOnAction(e -> handleExport());
     }
@@ -223,6 +251,7 @@ public final class MainViewController {
   private void configureTriangleService() {
     triangleService = new TriangleCounterService(segments);
     triangleService.setCoordinateTolerance(TRIANGLE_COORD_TOLERANCE);
+    triangleService.setLabelEngine(vertexLabelEngine);
     triangleService.setListener(new TriangleCounterService.Listener() {
       @Override
       public void onStart() {
@@ -251,6 +280,11 @@ public final class MainViewController {
         applyTriangleOverlay();
       }
 
+      @Override
+      public void onLabelsUpdated(VertexLabelEngine.LabelUpdate update) {
+        segmentCanvas.applyVertexLabels(update);
+      }
+
       @Override
       public void onFailure(Throwable error) {
         if (recomputeIndicator != null) {
@@ -263,22 +297,156 @@ public final class MainViewController {
     triangleService.request();
   }
 
+  private void handleOpen() {
+    ensureChoosers();
+    File file = openChooser.showOpenDialog(getOwnerWindow());
+    if (file == null) {
+      return;
+    }
+    cancelDrawing();
+    triangleService.suspend();
+    resetProject();
+    setEditingDisabled(true);
+    Task<Integer> task = new Task<>() {
+      private int loaded;
+
+      @Override
+      protected Integer call() throws IOException {
+        List<Segment> batch = new ArrayList<>(OPEN_BATCH_SIZE);
+        projectIO.load(file.toPath(), segment -> {
+          batch.add(segment);
+          if (batch.size() == OPEN_BATCH_SIZE) {
+            publish(batch);
+          }
+        });
+        publish(batch);
+        return loaded;
+      }
+
+      private void publish(List<Segment> batch) {
+        if (batch.isEmpty()) {
+          return;
+        }
+        List<Segment> chunk = List.copyOf(batch);
+        batch.clear();
+        loaded += chunk.size();
+        int total = loaded;
+        Platform.runLater(() -> appendLoadedSegments(chunk, total));
+      }
+    };
+    task.setOnSucceeded(e -> {
+      finishIoTask();
+      setEditingDisabled(false);
+      triangleService.resume();
+      rememberDirectory(file);
+      setStatus("Opened " + file.getName() + " (" + segments.size() + " segments)");
+    });
+    task.setOnFailed(e -> {
+      finishIoTask();
+      resetProject();
+      setEditingDisabled(false);
+      triangleService.resume();
+      Throwable error = task.getException();
+      setStatus("Open failed: " + (error != null ? error.getMessage() : "unknown error"));
+    });
+    startIoTask(task, "Opening " + file.getName() + "...");
+  }
+
+  private void appendLoadedSegments(List<Segment> batch, int total) {
+    vertexRegistry.beginBatch();
+    try {
+      for (Segment segment : batch) {
+        VertexRegistry.Vertex start = vertexRegistry.register(new Point2D(segment.x1(), segment.y1()));
+        VertexRegistry.Vertex end = vertexRegistry.register(new Point2D(segment.x2(), segment.y2()));
+        segmentMetadata.put(segment, new SegmentMetadata(start.id(), end.id()));
+      }
+    } finally {
+      vertexRegistry.endBatch();
+    }
+    segments.addAll(batch);
+    setStatus("Loaded " + total + " segments...");
+  }
+
+  private void resetProject() {
+    undoStack.clear();
+    redoStack.clear();
+    updateUndoRedoButtons();
+    if (segmentListView != null) {
+      segmentListView.getSelectionModel().clearSelection();
+    }
+    segments.clear();
+    segmentMetadata.clear();
+    vertexRegistry.clear();
+  }
+
+  private void setEditingDisabled(boolean disabled) {
+    canvasPane.setDisable(disabled);
+    if (segmentListView != null) {
+      segmentListView.setDisable(disabled);
+    }
+  }
+
   private void handleExport() {
     ensureChoosers();
     File file = exportChooser.showSaveDialog(getOwnerWindow());
     if (file == null) {
       return;
     }
-    try {
-      projectIO.save(file.toPath(), TRIANGLE_COORD_TOLERANCE, List.copyOf(segments));
-      File parent = file.getParentFile();
-      if (parent != null && parent.isDirectory()) {
-        lastDirectory = parent;
-        updateChoosersDirectory();
+    List<Segment> snapshot = List.copyOf(segments);
+    Task<Void> task = new Task<>() {
+      @Override
+      protected Void call() throws IOException {
+        projectIO.save(file.toPath(), TRIANGLE_COORD_TOLERANCE, snapshot, false, this::updateProgress);
+        return null;
       }
+    };
+    task.setOnSucceeded(e -> {
+      finishIoTask();
+      rememberDirectory(file);
       setStatus("Exported " + file.getName());
-    } catch (IOException ex) {
-      setStatus("Export failed: " + ex.getMessage());
+    });
+    task.setOnFailed(e -> {
+      finishIoTask();
+      Throwable error = task.getException();
+      setStatus("Export failed: " + (error != null ? error.getMessage() : "unknown error"));
+    });
+    startIoTask(task, "Exporting " + file.getName() + "...");
+  }
+
+  private void startIoTask(Task<?> task, String message) {
+    setIoButtonsDisabled(true);
+    if (ioProgress != null) {
+      ioProgress.progressProperty().bind(task.progressProperty());
+      ioProgress.setManaged(true);
+      ioProgress.setVisible(true);
+    }
+    setStatus(message);
+    ioExecutor.submit(task);
+  }
+
+  private void finishIoTask() {
+    setIoButtonsDisabled(false);
+    if (ioProgress != null) {
+      ioProgress.progressProperty().unbind();
+      ioProgress.setManaged(false);
+      ioProgress.setVisible(false);
+    }
+  }
+
+  private void setIoButtonsDisabled(boolean disabled) {
+    if (openButton != null) {
+      openButton.setDisable(disabled);
+    }
+    if (exportButton != null) {
+      exportButton.setDisable(disabled);
+    }
+  }
+
+  private void rememberDirectory(File file) {
+    File parent = file.getParentFile();
+    if (parent != null && parent.isDirectory()) {
+      lastDirectory = parent;
+      updateChoosersDirectory();
     }
   }
 
@@ -290,9 +458,17 @@ public final class MainViewController {
   }
 
   private void ensureChoosers() {
+    if (openChooser == null) {
+      openChooser = new FileChooser();
+      openChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+          "Projects", "*.json", "*.json.gz", "*.ndjson", "*.ndjson.gz", "*" + ProjectIO.BINARY_EXTENSION));
+      openChooser.setTitle("Open Project");
+    }
     if (exportChooser == null) {
       exportChooser = new FileChooser();
-      exportChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON", "*.json"));
+      exportChooser.getExtensionFilters().addAll(
+          new FileChooser.ExtensionFilter("JSON", "*.json"),
+          new FileChooser.ExtensionFilter("Compressed JSON", "*.json.gz"));
       exportChooser.setTitle("Export Project");
     }
     updateChoosersDirectory();
@@ -300,6 +476,9 @@ public final class MainViewController {
 
   private void updateChoosersDirectory() {
     if (lastDirectory != null && lastDirectory.isDirectory()) {
+      if (openChooser != null) {
+        openChooser.setInitialDirectory(lastDirectory);
+      }
       if (exportChooser != null) {
         exportChooser.setInitialDirectory(lastDirectory);
       }
@@ -397,7 +576,7 @@ public final class MainViewController {
         movementDir = movement.normalize();
       }
     }
-    return snapResolver.resolve(cursor, anchorPoint, movementDir, snapVertices, segments);
+    return snapResolver.resolve(cursor, anchorPoint, movementDir, vertexRegistry.snapPoints(), segments);
   }
 
   private void cancelDrawing() {
@@ -406,38 +585,12 @@ public final class MainViewController {
     segmentCanvas.hideSnapIndicator();
   }
 
-  private void rebuildSnapVertices() {
-    snapVertices.clear();
-    snapVertices.addAll(vertexRegistry.snapPoints());
-  }
-
-  private void updateSegmentList() {
-    segmentItems.clear();
-    for (Segment segment : segments) {
-      SegmentMetadata metadata = segmentMetadata.get(segment);
-      if (metadata == null) {
-        segmentItems.add(formatSegmentFallback(segment));
-      } else {
-        segmentItems.add(formatSegment(segment, metadata));
-      }
-    }
-    segmentCanvas.updateVertexLabels(
-        vertexLabelCalculator.calculate(segments, segmentMetadata, vertexRegistry));
+  private void handleSegmentsChanged(ListChangeListener.Change<? extends Segment> change) {
+    SegmentDiff diff = SegmentDiff.of(change);
+    vertexLabelEngine.segmentsChanged(diff.removed(), diff.added(), segmentMetadata);
   }
 
-  private String formatSegment(Segment segment, SegmentMetadata metadata) {
-    String id = segment.id();
-    return String.format(
-        Locale.US,
-        "%s: (%.2f, %.2f) -> (%.2f, %.2f)",
-        id,
-        segment.x1(),
-        segment.y1(),
-        segment.x2(),
-        segment.y2());
-  }
-
-  private String formatSegmentFallback(Segment segment) {
+  private static String formatSegment(Segment segment) {
     return String.format(
         Locale.US,
         "%s: (%.2f, %.2f) -> (%.2f, %.2f)",
@@ -479,12 +632,41 @@ public final class MainViewController {
   }
 
   private void executeCommand(Command command) {
-    command.redo();
+    applyEdit(command::redo);
     undoStack.push(command);
     redoStack.clear();
     updateUndoRedoButtons();
   }
 
+  private void applyEdit(Consumer<SegmentEdit> action) {
+    SegmentEdit edit = new SegmentEdit();
+    vertexRegistry.beginBatch();
+    try {
+      action.accept(edit);
+    } finally {
+      vertexRegistry.endBatch();
+    }
+    edit.commit();
+  }
+
+  private void deleteSelectedSegments() {
+    if (segmentListView == null) {
+      return;
+    }
+    List<Segment> selected = List.copyOf(segmentListView.getSelectionModel().getSelectedItems());
+    if (selected.isEmpty()) {
+      return;
+    }
+    List<RemoveSegmentCommand> removals = new ArrayList<>(selected.size());
+    for (Segment segment : selected) {
+      removals.add(new RemoveSegmentCommand(segment));
+    }
+    removals.sort(Comparator.comparingInt((RemoveSegmentCommand command) -> command.index).reversed());
+    segmentListView.getSelectionModel().clearSelection();
+    executeCommand(new CompoundCommand(removals));
+    setStatus(selected.size() + " segments removed (" + segments.size() + " remaining)");
+  }
+
   private void applyTriangleOverlay() {
     if (segmentCanvas == null) {
       return;
@@ -503,7 +685,7 @@ public final class MainViewController {
       return;
     }
     Command command = undoStack.pop();
-    command.undo();
+    applyEdit(command::undo);
     redoStack.push(command);
     updateUndoRedoButtons();
     setStatus("Undo");
@@ -514,7 +696,7 @@ public final class MainViewController {
       return;
     }
     Command command = redoStack.pop();
-    command.redo();
+    applyEdit(command::redo);
     undoStack.push(command);
     updateUndoRedoButtons();
     setStatus("Redo");
@@ -531,12 +713,98 @@ public final class MainViewController {
     }
   }
 
+  private static final class SegmentCell extends ListCell<Segment> {
+    @Override
+    protected void updateItem(Segment segment, boolean empty) {
+      super.updateItem(segment, empty);
+      setText(empty || segment == null ? null : formatSegment(segment));
+    }
+  }
+
   private interface Command {
-    void redo();
+    void redo(SegmentEdit edit);
+
+    void undo(SegmentEdit edit);
+  }
+
+  private final class SegmentEdit {
+    private final List<SegmentOp> ops = new ArrayList<>();
+
+    void add(int index, Segment segment) {
+      ops.add(new SegmentOp(segment, index, true));
+    }
 
-    void undo();
+    void remove(Segment segment) {
+      ops.add(new SegmentOp(segment, -1, false));
+    }
+
+    void commit() {
+      if (ops.isEmpty()) {
+        return;
+      }
+      if (ops.size() == 1) {
+        SegmentOp op = ops.get(0);
+        if (op.addition()) {
+          segments.add(Math.min(op.index(), segments.size()), op.segment());
+        } else {
+          segments.remove(op.segment());
+        }
+        return;
+      }
+      List<Segment> working = new ArrayList<>(segments);
+      int i = 0;
+      while (i < ops.size()) {
+        SegmentOp op = ops.get(i);
+        if (op.addition()) {
+          working.add(Math.min(op.index(), working.size()), op.segment());
+          i++;
+          continue;
+        }
+        Map<Segment, Integer> pending = new HashMap<>();
+        while (i < ops.size() && !ops.get(i).addition()) {
+          pending.merge(ops.get(i).segment(), 1, Integer::sum);
+          i++;
+        }
+        working.removeIf(segment -> {
+          Integer count = pending.get(segment);
+          if (count == null) {
+            return false;
+          }
+          if (count == 1) {
+            pending.remove(segment);
+          } else {
+            pending.put(segment, count - 1);
+          }
+          return true;
+        });
+      }
+      segments.setAll(working);
+    }
   }
 
+  private record SegmentOp(Segment segment, int index, boolean addition) {}
+
+  private final class CompoundCommand implements Command {
+    private final List<? extends Command> commands;
+
+    private CompoundCommand(List<? extends Command> commands) {
+      this.commands = List.copyOf(commands);
+    }
+
+    @Override
+    public void redo(SegmentEdit edit) {
+      for (Command command : commands) {
+        command.redo(edit);
+      }
+    }
+
+    @Override
+    public void undo(SegmentEdit edit) {
+      for (int i = commands.size() - 1; i >= 0; i--) {
+        commands.get(i).undo(edit);
+      }
+    }
+  }
   private final class AddSegmentCommand implements Command {
     private final Point2D startPoint;
     private final Point2D endPoint;
@@ -552,7 +820,7 @@ public final class MainViewController {
     }
 
     @Override
-    public void redo() {
+    public void redo(SegmentEdit edit) {
       if (segment == null) {
         VertexRegistry.Vertex startVertex = vertexRegistry.register(startPoint);
         VertexRegistry.Vertex endVertex = vertexRegistry.register(endPoint);
@@ -566,16 +834,15 @@ public final class MainViewController {
         vertexRegistry.restore(endVertexId, endPoint);
       }
       segmentMetadata.put(segment, new SegmentMetadata(startVertexId, endVertexId));
-      int insert = Math.min(insertionIndex, segments.size());
-      segments.add(insert, segment);
+      edit.add(insertionIndex, segment);
     }
 
     @Override
-    public void undo() {
+    public void undo(SegmentEdit edit) {
       segmentMetadata.remove(segment);
       vertexRegistry.decrement(startVertexId);
       vertexRegistry.decrement(endVertexId);
-      segments.remove(segment);
+      edit.remove(segment);
     }
   }
 
@@ -591,24 +858,23 @@ public final class MainViewController {
     }
 
     @Override
-    public void redo() {
+    public void redo(SegmentEdit edit) {
       if (metadata != null) {
         segmentMetadata.remove(segment);
         vertexRegistry.decrement(metadata.startVertexId());
         vertexRegistry.decrement(metadata.endVertexId());
       }
-      segments.remove(segment);
+      edit.remove(segment);
     }
 
     @Override
-    public void undo() {
+    public void undo(SegmentEdit edit) {
       if (metadata != null) {
         vertexRegistry.restore(metadata.startVertexId(), new Point2D(segment.x1(), segment.y1()));
         vertexRegistry.restore(metadata.endVertexId(), new Point2D(segment.x2(), segment.y2()));
         segmentMetadata.put(segment, metadata);
       }
-      int insert = Math.min(index, segments.size());
-      segments.add(insert, segment);
+      edit.add(index, segment);
     }
   }
 }
@@ -34,6 +34,7 @@ public final class SegmentCanvas extends Pane {
   private final Group vertexGroup = new Group();
   private final Map<Segment, Line> lineBySegment = new HashMap<>();
   private final Map<String, Text> vertexLabels = new HashMap<>();
+  private final Map<String, VertexLabel> placedLabels = new HashMap<>();
   private final Line previewLine = new Line();
   private final Circle snapIndicator = new Circle(5);
 
@@ -106,8 +107,7 @@ public final class SegmentCanvas extends Pane {
   public void updateVertexLabels(Iterable<VertexLabel> labels) {
     Set<String> seen = new HashSet<>();
     for (VertexLabel label : labels) {
-      Text text = vertexLabels.computeIfAbsent(label.id(), this::createVertexText);
-      positionVertexText(text, label);
+      placeVertexLabel(label);
       seen.add(label.id());
     }
     vertexLabels.entrySet().removeIf(entry -> {
@@ -115,10 +115,33 @@ public final class SegmentCanvas extends Pane {
         return false;
       }
       vertexGroup.getChildren().remove(entry.getValue());
+      placedLabels.remove(entry.getKey());
       return true;
     });
   }
 
+  public void applyVertexLabels(VertexLabelEngine.LabelUpdate update) {
+    for (String id : update.removed()) {
+      Text text = vertexLabels.remove(id);
+      placedLabels.remove(id);
+      if (text != null) {
+        vertexGroup.getChildren().remove(text);
+      }
+    }
+    for (VertexLabel label : update.updated()) {
+      placeVertexLabel(label);
+    }
+  }
+
+  private void placeVertexLabel(VertexLabel label) {
+    if (label.equals(placedLabels.get(label.id()))) {
+      return;
+    }
+    Text text = vertexLabels.computeIfAbsent(label.id(), this::createVertexText);
+    positionVertexText(text, label);
+    placedLabels.put(label.id(), label);
+  }
+
   private Text createVertexText(String id) {
     Text text = new Text(id);
     text.getStyleClass().add("vertex-label");
@@ -139,17 +162,12 @@ public final class SegmentCanvas extends Pane {
   }
 
   private void handleChange(ListChangeListener.Change<? extends Segment> change) {
-    while (change.next()) {
-      if (change.wasRemoved()) {
-        for (Segment segment : change.getRemoved()) {
-          removeSegment(segment);
-        }
-      }
-      if (change.wasAdded()) {
-        for (Segment segment : change.getAddedSubList()) {
-          addSegment(segment);
-        }
-      }
+    SegmentDiff diff = SegmentDiff.of(change);
+    for (Segment segment : diff.removed()) {
+      removeSegment(segment);
+    }
+    for (Segment segment : diff.added()) {
+      addSegment(segment);
     }
   }
 
@@ -0,0 +1,58 @@
+package app.tricount.ui;
+
+import app.tricount.geometry.Segment;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.collections.ListChangeListener;
+
+record SegmentDiff(List<Segment> removed, List<Segment> added) {
+  static SegmentDiff of(ListChangeListener.Change<? extends Segment> change) {
+    List<Segment> removed = new ArrayList<>();
+    List<Segment> added = new ArrayList<>();
+    while (change.next()) {
+      if (change.wasPermutated()) {
+        continue;
+      }
+      if (change.wasRemoved()) {
+        removed.addAll(change.getRemoved());
+      }
+      if (change.wasAdded()) {
+        added.addAll(change.getAddedSubList());
+      }
+    }
+    if (removed.isEmpty() || added.isEmpty()) {
+      return new SegmentDiff(removed, added);
+    }
+    Map<Segment, Integer> surviving = new HashMap<>();
+    for (Segment segment : added) {
+      surviving.merge(segment, 1, Integer::sum);
+    }
+    List<Segment> netRemoved = new ArrayList<>();
+    for (Segment segment : removed) {
+      Integer count = surviving.get(segment);
+      if (count == null) {
+        netRemoved.add(segment);
+      } else if (count == 1) {
+        surviving.remove(segment);
+      } else {
+        surviving.put(segment, count - 1);
+      }
+    }
+    List<Segment> netAdded = new ArrayList<>();
+    for (Segment segment : added) {
+      Integer count = surviving.get(segment);
+      if (count == null) {
+        continue;
+      }
+      netAdded.add(segment);
+      if (count == 1) {
+        surviving.remove(segment);
+      } else {
+        surviving.put(segment, count - 1);
+      }
+    }
+    return new SegmentDiff(netRemoved, netAdded);
+  }
+}
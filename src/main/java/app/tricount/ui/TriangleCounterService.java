@@ -1,9 +1,14 @@
 package app.tricount.ui;
 
+import app.tricount.events.RecordingTriangleCounter;
+import app.tricount.events.ResultDeliveryEvent;
 import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
 import app.tricount.graph.Graph;
 import app.tricount.graph.TriangleCounter;
 import app.tricount.graph.VisualTriangleCounter;
+import app.tricount.metrics.TriangleCounterMetrics;
+import javafx.animation.Animation;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.collections.ListChangeListener;
@@ -13,6 +18,7 @@ import javafx.util.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -22,6 +28,8 @@ public final class TriangleCounterService {
     void onStart();
     void onSuccess(Result result);
     void onFailure(Throwable error);
+
+    default void onLabelsUpdated(VertexLabelEngine.LabelUpdate update) {}
   }
 
   public static final class Result {
@@ -58,7 +66,9 @@ public final class TriangleCounterService {
   private volatile double angleTolerance = 1e-6;
 
   private final ObservableList<Segment> segments;
+  private final SegmentStore mirror;
   private final TriangleCounter counter;
+  private final TriangleCounterMetrics metrics = TriangleCounterMetrics.get();
   private final PauseTransition debounce = new PauseTransition(Duration.millis(150));
   private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
     Thread thread = new Thread(r, "triangle-counter");
@@ -67,17 +77,24 @@ public final class TriangleCounterService {
   });
 
   private Listener listener;
-  private long sequence;
+  private VertexLabelEngine labelEngine;
+  private volatile long sequence;
   private Future<?> inFlight;
+  private int suspendDepth;
+  private boolean requestedWhileSuspended;
 
-  private final ListChangeListener<Segment> segmentListener = change -> request();
+  private final ListChangeListener<Segment> segmentListener = change -> {
+    mirror(change);
+    request();
+  };
 
   public TriangleCounterService(ObservableList<Segment> segments) {
-    this(segments, new VisualTriangleCounter());
+    this(segments, new RecordingTriangleCounter("visual", new VisualTriangleCounter()));
   }
 
   public TriangleCounterService(ObservableList<Segment> segments, TriangleCounter counter) {
     this.segments = segments;
+    this.mirror = SegmentStore.of(segments);
     this.counter = counter;
     this.segments.addListener(segmentListener);
     debounce.setOnFinished(evt -> submit());
@@ -87,10 +104,35 @@ public final class TriangleCounterService {
     this.listener = listener;
   }
 
+  public void setLabelEngine(VertexLabelEngine labelEngine) {
+    this.labelEngine = labelEngine;
+  }
+
   public void request() {
+    if (suspendDepth > 0) {
+      metrics.requested(requestedWhileSuspended);
+      requestedWhileSuspended = true;
+      return;
+    }
+    metrics.requested(debounce.getStatus() == Animation.Status.RUNNING);
     debounce.playFromStart();
   }
 
+  public void suspend() {
+    if (suspendDepth++ == 0 && debounce.getStatus() == Animation.Status.RUNNING) {
+      debounce.stop();
+      requestedWhileSuspended = true;
+    }
+  }
+
+  public void resume() {
+    if (suspendDepth == 0 || --suspendDepth > 0 || !requestedWhileSuspended) {
+      return;
+    }
+    requestedWhileSuspended = false;
+    submit();
+  }
+
   public void dispose() {
     debounce.stop();
     segments.removeListener(segmentListener);
@@ -112,22 +154,51 @@ public final class TriangleCounterService {
 
   private void submit() {
     final long runId = ++sequence;
-    List<Segment> snapshot = List.copyOf(segments);
+    long submitted = System.nanoTime();
+    SegmentStore snapshot = mirror.snapshot();
+    VertexLabelEngine engine = labelEngine;
     notifyStart();
+    metrics.submitted(inFlight != null && !inFlight.isDone());
     if (inFlight != null) {
       inFlight.cancel(true);
     }
     inFlight = executor.submit(() -> {
+      ResultDeliveryEvent event = new ResultDeliveryEvent();
+      event.begin();
+      event.queued = System.nanoTime() - submitted;
+      metrics.started();
       try {
         Result result = compute(snapshot);
-        deliverSuccess(runId, result);
+        metrics.finished(System.nanoTime() - submitted, true, runId == sequence);
+        deliverSuccess(runId, result, engine, event);
       } catch (Throwable error) {
-        deliverFailure(runId, error);
+        boolean current = runId == sequence && !(error instanceof CancellationException);
+        metrics.finished(System.nanoTime() - submitted, false, current);
+        deliverFailure(runId, error, engine, event);
       }
     });
   }
 
-  private Result compute(List<Segment> snapshot) {
+  private void mirror(ListChangeListener.Change<? extends Segment> change) {
+    while (change.next()) {
+      if (change.wasPermutated()) {
+        mirror.setAll(segments);
+        return;
+      }
+      int from = change.getFrom();
+      if (change.wasRemoved()) {
+        mirror.removeRange(from, from + change.getRemovedSize());
+      }
+      if (change.wasAdded()) {
+        List<? extends Segment> added = change.getAddedSubList();
+        for (int i = 0; i < added.size(); i++) {
+          mirror.insert(from + i, added.get(i));
+        }
+      }
+    }
+  }
+
+  private Result compute(SegmentStore snapshot) {
     if (snapshot.isEmpty()) {
       return new Result(0, 0, 0, List.of());
     }
@@ -139,15 +210,14 @@ public final class TriangleCounterService {
     for (int[] tri : triangles) {
       List<Point2D> poly = new ArrayList<>(tri.length);
       for (int idx : tri) {
-        Graph.V vertex = contracted.vertices().get(idx);
-        poly.add(new Point2D(vertex.x(), vertex.y()));
+        poly.add(new Point2D(contracted.x(idx), contracted.y(idx)));
       }
       points.add(poly);
     }
-    return new Result(snapshot.size(), contracted.vertices().size(), triangles.size(), points);
+    return new Result(snapshot.size(), contracted.vertexCount(), triangles.size(), points);
   }
 
-  private void dumpSnapshotIfRequested(List<Segment> snapshot) {
+  private void dumpSnapshotIfRequested(SegmentStore snapshot) {
     if (System.getProperty("tricount.debug.json") == null) {
       return;
     }
@@ -156,12 +226,11 @@ public final class TriangleCounterService {
     sb.append("  \"tolerance\": ").append(String.format(Locale.US, "%.9f", coordinateTolerance)).append(",\n");
     sb.append("  \"segments\": [\n");
     for (int i = 0; i < snapshot.size(); i++) {
-      Segment segment = snapshot.get(i);
-      sb.append("    {\"id\": \"").append(segment.id()).append("\", ");
-      sb.append("\"x1\": ").append(String.format(Locale.US, "%.6f", segment.x1())).append(", ");
-      sb.append("\"y1\": ").append(String.format(Locale.US, "%.6f", segment.y1())).append(", ");
-      sb.append("\"x2\": ").append(String.format(Locale.US, "%.6f", segment.x2())).append(", ");
-      sb.append("\"y2\": ").append(String.format(Locale.US, "%.6f", segment.y2())).append("}");
+      sb.append("    {\"id\": \"").append(snapshot.id(i)).append("\", ");
+      sb.append("\"x1\": ").append(String.format(Locale.US, "%.6f", snapshot.x1(i))).append(", ");
+      sb.append("\"y1\": ").append(String.format(Locale.US, "%.6f", snapshot.y1(i))).append(", ");
+      sb.append("\"x2\": ").append(String.format(Locale.US, "%.6f", snapshot.x2(i))).append(", ");
+      sb.append("\"y2\": ").append(String.format(Locale.US, "%.6f", snapshot.y2(i))).append("}");
       if (i < snapshot.size() - 1) {
         sb.append(",");
       }
@@ -179,21 +248,59 @@ public final class TriangleCounterService {
     }
   }
 
-  private void deliverSuccess(long runId, Result result) {
+  private void deliverSuccess(long runId, Result result, VertexLabelEngine engine, ResultDeliveryEvent event) {
     if (runId != sequence) {
+      record(event, runId, "superseded", result);
       return;
     }
+    record(event, runId, "delivered", result);
+    VertexLabelEngine.LabelUpdate labels = drainLabels(engine);
     if (listener != null) {
-      Platform.runLater(() -> listener.onSuccess(result));
+      Platform.runLater(() -> {
+        publishLabels(labels);
+        listener.onSuccess(result);
+      });
     }
   }
 
-  private void deliverFailure(long runId, Throwable error) {
+  private void deliverFailure(long runId, Throwable error, VertexLabelEngine engine, ResultDeliveryEvent event) {
     if (runId != sequence) {
+      record(event, runId, "superseded", null);
       return;
     }
+    record(event, runId, error instanceof CancellationException ? "cancelled" : "failed", null);
+    VertexLabelEngine.LabelUpdate labels = drainLabels(engine);
     if (listener != null) {
-      Platform.runLater(() -> listener.onFailure(error));
+      Platform.runLater(() -> {
+        publishLabels(labels);
+        listener.onFailure(error);
+      });
+    }
+  }
+
+  private void record(ResultDeliveryEvent event, long runId, String status, Result result) {
+    if (!event.shouldCommit()) {
+      return;
+    }
+    event.run = runId;
+    event.status = status;
+    if (result != null) {
+      event.segments = result.segmentCount();
+      event.vertices = result.vertexCount();
+      event.triangles = result.triangleCount();
+    }
+    event.coordinateTolerance = coordinateTolerance;
+    event.angleTolerance = angleTolerance;
+    event.commit();
+  }
+
+  private VertexLabelEngine.LabelUpdate drainLabels(VertexLabelEngine engine) {
+    return engine != null ? engine.drain() : null;
+  }
+
+  private void publishLabels(VertexLabelEngine.LabelUpdate labels) {
+    if (labels != null && !labels.isEmpty()) {
+      listener.onLabelsUpdated(labels);
     }
   }
 }
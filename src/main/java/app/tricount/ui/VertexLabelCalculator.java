@@ -1,19 +1,15 @@
 package app.tricount.ui;
 
-import app.tricount.geometry.Segment;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import javafx.geometry.Point2D;
 
 public final class VertexLabelCalculator {
-  private static final int ANGLE_SAMPLES = 72;
-  private static final double MIN_ACCEPTABLE_ANGLE_DEGREES = 32.0;
   private static final double MIN_CLEARANCE_PIXELS = 14.0;
-  private static final double STEP_PIXELS = 6.0;
   private static final double MAX_OFFSET_PIXELS = 140.0;
-  private static final double ON_SEGMENT_TOLERANCE = 1e-3;
+  private static final double GAP_TIE_EPSILON = 1e-9;
 
   private final double baseOffset;
 
@@ -21,179 +17,105 @@ public final class VertexLabelCalculator {
     this.baseOffset = baseOffset;
   }
 
-  public List<SegmentCanvas.VertexLabel> calculate(
-      List<Segment> segments,
-      Map<Segment, SegmentMetadata> metadata,
-      VertexRegistry registry) {
-    Map<String, List<IncidentEdge>> incidentEdges = collectIncidentEdges(segments, metadata, registry);
-    List<SegmentCanvas.VertexLabel> labels = new ArrayList<>();
-    for (VertexRegistry.Vertex vertex : registry.vertices()) {
-      List<IncidentEdge> edges = incidentEdges.get(vertex.id());
-      Placement placement = choosePlacement(vertex.point(), edges);
-      Point2D offset = placement.direction().multiply(placement.distance());
-      labels.add(new SegmentCanvas.VertexLabel(vertex.id(), vertex.x(), vertex.y(), offset.getX(), offset.getY()));
+  public SegmentCanvas.VertexLabel label(String id, Point2D origin, Collection<Point2D> incidentEnds) {
+    List<IncidentEdge> edges = new ArrayList<>(incidentEnds.size());
+    for (Point2D other : incidentEnds) {
+      addEdge(edges, origin, other);
     }
-    return labels;
+    Placement placement = choosePlacement(origin, edges);
+    Point2D offset = placement.direction().multiply(placement.distance());
+    return new SegmentCanvas.VertexLabel(id, origin.getX(), origin.getY(), offset.getX(), offset.getY());
   }
 
-  private Map<String, List<IncidentEdge>> collectIncidentEdges(
-      List<Segment> segments,
-      Map<Segment, SegmentMetadata> metadata,
-      VertexRegistry registry) {
-    Map<String, List<IncidentEdge>> incident = new HashMap<>();
-    
-    for (Segment segment : segments) {
-      SegmentMetadata data = metadata.get(segment);
-      if (data == null) {
-        continue;
-      }
-      VertexRegistry.Vertex start = registry.get(data.startVertexId());
-      VertexRegistry.Vertex end = registry.get(data.endVertexId());
-      if (start == null || end == null) {
-        continue;
-      }
-      addEdge(incident, start, end);
-      addEdge(incident, end, start);
-    }
-
-    for (VertexRegistry.Vertex vertex : registry.vertices()) {
-      for (Segment segment : segments) {
-        if (segmentContainsPoint(segment, vertex.point())) {
-          Point2D a = new Point2D(segment.x1(), segment.y1());
-          Point2D b = new Point2D(segment.x2(), segment.y2());
-          addEdge(incident, vertex, a);
-          addEdge(incident, vertex, b);
-        }
-      }
-    }
-    return incident;
-  }
-
-  private void addEdge(Map<String, List<IncidentEdge>> map, VertexRegistry.Vertex origin, VertexRegistry.Vertex other) {
-    addEdge(map, origin, other.point());
-  }
-
-  private void addEdge(Map<String, List<IncidentEdge>> map, VertexRegistry.Vertex origin, Point2D otherPoint) {
-    Point2D vector = otherPoint.subtract(origin.point());
-    if (vector.magnitude() <= 1e-6) {
+  private void addEdge(List<IncidentEdge> edges, Point2D origin, Point2D otherPoint) {
+    Point2D vector = otherPoint.subtract(origin);
+    double length = vector.magnitude();
+    if (length <= 1e-6) {
       return;
     }
-    Point2D direction = vector.normalize();
-    map.computeIfAbsent(origin.id(), k -> new ArrayList<>())
-        .add(new IncidentEdge(origin.point(), otherPoint, direction));
-  }
-
-  private boolean segmentContainsPoint(Segment segment, Point2D point) {
-    Point2D a = new Point2D(segment.x1(), segment.y1());
-    Point2D b = new Point2D(segment.x2(), segment.y2());
-    double distance = distancePointToSegment(point, a, b);
-    if (distance > ON_SEGMENT_TOLERANCE) {
-      return false;
-    }
-    double minX = Math.min(a.getX(), b.getX()) - ON_SEGMENT_TOLERANCE;
-    double maxX = Math.max(a.getX(), b.getX()) + ON_SEGMENT_TOLERANCE;
-    double minY = Math.min(a.getY(), b.getY()) - ON_SEGMENT_TOLERANCE;
-    double maxY = Math.max(a.getY(), b.getY()) + ON_SEGMENT_TOLERANCE;
-    return point.getX() >= minX && point.getX() <= maxX && point.getY() >= minY && point.getY() <= maxY;
+    edges.add(new IncidentEdge(vector.getX() / length, vector.getY() / length, length));
   }
 
   private Placement choosePlacement(Point2D origin, List<IncidentEdge> edges) {
     if (edges == null || edges.isEmpty()) {
       return new Placement(new Point2D(0, -1), baseOffset);
     }
-    List<Point2D> blocked = new ArrayList<>(edges.size());
+    List<Direction> blocked = new ArrayList<>(edges.size() * 2);
     for (IncidentEdge edge : edges) {
-      blocked.add(edge.direction());
-    }
-
-    double minAngleRad = Math.toRadians(MIN_ACCEPTABLE_ANGLE_DEGREES);
-    double bestScore = Double.NEGATIVE_INFINITY;
-    double bestAngle = 0d;
-    boolean found = false;
-
-    for (int i = 0; i < ANGLE_SAMPLES; i++) {
-      double angle = (Math.PI * 2d * i) / ANGLE_SAMPLES;
-      Point2D candidate = directionFromAngle(angle);
-      double clearance = minimumAngle(candidate, blocked);
-      if (clearance >= minAngleRad && clearance > bestScore) {
-        bestScore = clearance;
-        bestAngle = angle;
-        found = true;
-      }
+      blocked.add(new Direction(edge.dx(), edge.dy()));
+      blocked.add(new Direction(-edge.dx(), -edge.dy()));
     }
-
-    if (!found) {
-      bestScore = Double.NEGATIVE_INFINITY;
-      for (int i = 0; i < ANGLE_SAMPLES; i++) {
-        double angle = (Math.PI * 2d * i) / ANGLE_SAMPLES;
-        Point2D candidate = directionFromAngle(angle);
-        double clearance = minimumAngle(candidate, blocked);
-        if (clearance > bestScore
-            || (Math.abs(clearance - bestScore) <= 1e-6 && candidate.getY() < Math.sin(bestAngle))) {
-          bestScore = clearance;
-          bestAngle = angle;
-        }
+    blocked.sort(Comparator.comparingDouble(Direction::pseudoAngle));
+
+    double bestGap = Double.NEGATIVE_INFINITY;
+    double bestX = 0d;
+    double bestY = -1d;
+    int count = blocked.size();
+    for (int i = 0; i < count; i++) {
+      Direction from = blocked.get(i);
+      Direction to = blocked.get((i + 1) % count);
+      double dot = from.x() * to.x() + from.y() * to.y();
+      double cross = from.x() * to.y() - from.y() * to.x();
+      double gap = pseudoAngle(dot, cross);
+      double[] bisector = bisector(from, to, gap);
+      if (gap > bestGap + GAP_TIE_EPSILON
+          || (Math.abs(gap - bestGap) <= GAP_TIE_EPSILON && bisector[1] < bestY)) {
+        bestGap = gap;
+        bestX = bisector[0];
+        bestY = bisector[1];
       }
     }
 
-    Point2D direction = directionFromAngle(bestAngle);
-    double distance = computeOffsetDistance(origin, direction, edges);
-    return new Placement(direction, distance);
-  }
-
-  private double minimumAngle(Point2D direction, List<Point2D> blocked) {
-    double min = Double.POSITIVE_INFINITY;
-    for (Point2D incident : blocked) {
-      double dot = Math.max(-1d, Math.min(1d, direction.dotProduct(incident)));
-      double diff = Math.acos(Math.abs(dot));
-      if (diff < min) {
-        min = diff;
-      }
-    }
-    return min;
+    double distance = computeOffsetDistance(bestX, bestY, edges);
+    return new Placement(new Point2D(bestX, bestY), distance);
   }
 
-  private double computeOffsetDistance(Point2D origin, Point2D direction, List<IncidentEdge> edges) {
-    double distance = baseOffset;
-    double max = Math.max(baseOffset, MAX_OFFSET_PIXELS);
-    while (distance <= max) {
-      Point2D candidate = origin.add(direction.multiply(distance));
-      if (clearOfEdges(candidate, edges)) {
-        return distance;
-      }
-      distance += STEP_PIXELS;
+  private double[] bisector(Direction from, Direction to, double gap) {
+    double sx = from.x() + to.x();
+    double sy = from.y() + to.y();
+    double length = Math.hypot(sx, sy);
+    if (length <= 1e-12) {
+      return new double[] {-from.y(), from.x()};
     }
-    return MAX_OFFSET_PIXELS;
+    double sign = gap > 2d ? -1d : 1d;
+    return new double[] {sign * sx / length, sign * sy / length};
   }
 
-  private boolean clearOfEdges(Point2D candidate, List<IncidentEdge> edges) {
+  private double computeOffsetDistance(double ux, double uy, List<IncidentEdge> edges) {
+    double required = baseOffset;
+    double clearanceSq = MIN_CLEARANCE_PIXELS * MIN_CLEARANCE_PIXELS;
     for (IncidentEdge edge : edges) {
-      double dist = distancePointToSegment(candidate, edge.origin(), edge.other());
-      if (dist < MIN_CLEARANCE_PIXELS) {
-        return false;
+      double along = ux * edge.dx() + uy * edge.dy();
+      double across = Math.abs(ux * edge.dy() - uy * edge.dx());
+      double needed;
+      if (along <= 0d) {
+        needed = MIN_CLEARANCE_PIXELS;
+      } else if (across > 0d && MIN_CLEARANCE_PIXELS * along / across <= edge.length()) {
+        needed = MIN_CLEARANCE_PIXELS / across;
+      } else {
+        double lateral = edge.length() * across;
+        needed = edge.length() * along + Math.sqrt(Math.max(0d, clearanceSq - lateral * lateral));
       }
+      required = Math.max(required, needed);
     }
-    return true;
+    double max = Math.max(baseOffset, MAX_OFFSET_PIXELS);
+    return required <= max ? required : MAX_OFFSET_PIXELS;
   }
 
-  private double distancePointToSegment(Point2D point, Point2D a, Point2D b) {
-    double dx = b.getX() - a.getX();
-    double dy = b.getY() - a.getY();
-    if (Math.abs(dx) < 1e-9 && Math.abs(dy) < 1e-9) {
-      return point.distance(a);
+  private static double pseudoAngle(double x, double y) {
+    if (y >= 0d) {
+      return x >= 0d ? y / (x + y) : 1d - x / (y - x);
     }
-    double t = ((point.getX() - a.getX()) * dx + (point.getY() - a.getY()) * dy) / (dx * dx + dy * dy);
-    t = Math.max(0d, Math.min(1d, t));
-    double projX = a.getX() + t * dx;
-    double projY = a.getY() + t * dy;
-    return Math.hypot(point.getX() - projX, point.getY() - projY);
+    return x < 0d ? 2d - y / (-x - y) : 3d + x / (x - y);
   }
 
-  private Point2D directionFromAngle(double angle) {
-    return new Point2D(Math.cos(angle), Math.sin(angle));
-  }
+  private record IncidentEdge(double dx, double dy, double length) {}
 
-  private record IncidentEdge(Point2D origin, Point2D other, Point2D direction) {}
+  private record Direction(double x, double y) {
+    double pseudoAngle() {
+      return VertexLabelCalculator.pseudoAngle(x, y);
+    }
+  }
 
   private record Placement(Point2D direction, double distance) {}
 }
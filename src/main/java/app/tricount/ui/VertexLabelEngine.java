@@ -0,0 +1,290 @@
+package app.tricount.ui;
+
+import app.tricount.geometry.Segment;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javafx.geometry.Point2D;
+
+public final class VertexLabelEngine implements VertexRegistry.Listener {
+  private static final double CELL_SIZE = 64.0;
+  private static final double ON_SEGMENT_TOLERANCE = 1e-3;
+
+  public record LabelUpdate(List<SegmentCanvas.VertexLabel> updated, List<String> removed) {
+    public boolean isEmpty() {
+      return updated.isEmpty() && removed.isEmpty();
+    }
+  }
+
+  private final VertexLabelCalculator calculator;
+  private final Map<String, VertexState> vertices = new HashMap<>();
+  private final Map<Segment, SegmentEntry> segments = new HashMap<>();
+  private final Map<Long, List<VertexState>> vertexCells = new HashMap<>();
+  private final Map<Long, List<SegmentEntry>> segmentCells = new HashMap<>();
+  private final Set<String> dirty = new LinkedHashSet<>();
+  private final Set<String> removed = new LinkedHashSet<>();
+  private final Queue<Runnable> pendingEdits = new ConcurrentLinkedQueue<>();
+
+  public VertexLabelEngine(VertexLabelCalculator calculator) {
+    this.calculator = calculator;
+  }
+
+  @Override
+  public void verticesChanged(List<VertexRegistry.Vertex> addedVertices, List<VertexRegistry.Vertex> removedVertices) {
+    for (VertexRegistry.Vertex vertex : removedVertices) {
+      String id = vertex.id();
+      pendingEdits.add(() -> removeVertex(id));
+    }
+    for (VertexRegistry.Vertex vertex : addedVertices) {
+      String id = vertex.id();
+      Point2D point = vertex.point();
+      pendingEdits.add(() -> addVertex(id, point));
+    }
+  }
+
+  public void segmentsChanged(
+      List<? extends Segment> removedSegments,
+      List<? extends Segment> addedSegments,
+      Map<Segment, SegmentMetadata> metadata) {
+    for (Segment segment : removedSegments) {
+      pendingEdits.add(() -> removeSegment(segment));
+    }
+    for (Segment segment : addedSegments) {
+      SegmentMetadata data = metadata.get(segment);
+      pendingEdits.add(() -> addSegment(segment, data));
+    }
+  }
+
+  public void clear() {
+    pendingEdits.add(this::reset);
+  }
+
+  public LabelUpdate drain() {
+    Runnable edit;
+    while ((edit = pendingEdits.poll()) != null) {
+      edit.run();
+    }
+    List<SegmentCanvas.VertexLabel> updated = new ArrayList<>(dirty.size());
+    for (String id : dirty) {
+      VertexState state = vertices.get(id);
+      if (state != null) {
+        updated.add(calculator.label(id, state.point, state.incidentEnds()));
+      }
+    }
+    LabelUpdate update = new LabelUpdate(updated, List.copyOf(removed));
+    dirty.clear();
+    removed.clear();
+    return update;
+  }
+
+  private void reset() {
+    removed.addAll(vertices.keySet());
+    dirty.clear();
+    vertices.clear();
+    segments.clear();
+    vertexCells.clear();
+    segmentCells.clear();
+  }
+
+  private void addVertex(String id, Point2D point) {
+    removeVertex(id);
+    VertexState state = new VertexState(id, point);
+    vertices.put(id, state);
+    vertexCells.computeIfAbsent(cellKey(point.getX(), point.getY()), k -> new ArrayList<>(1)).add(state);
+    removed.remove(id);
+    dirty.add(id);
+    long cx = cellIndex(point.getX());
+    long cy = cellIndex(point.getY());
+    Set<SegmentEntry> candidates = new LinkedHashSet<>();
+    for (long dx = -1; dx <= 1; dx++) {
+      for (long dy = -1; dy <= 1; dy++) {
+        List<SegmentEntry> bucket = segmentCells.get(cellKey(cx + dx, cy + dy));
+        if (bucket != null) {
+          candidates.addAll(bucket);
+        }
+      }
+    }
+    for (SegmentEntry entry : candidates) {
+      if (segmentContainsPoint(entry.segment, point)) {
+        attachContainment(entry, state);
+      }
+    }
+  }
+
+  private void removeVertex(String id) {
+    VertexState state = vertices.remove(id);
+    if (state == null) {
+      return;
+    }
+    long key = cellKey(state.point.getX(), state.point.getY());
+    List<VertexState> bucket = vertexCells.get(key);
+    if (bucket != null) {
+      bucket.remove(state);
+      if (bucket.isEmpty()) {
+        vertexCells.remove(key);
+      }
+    }
+    dirty.remove(id);
+    removed.add(id);
+  }
+
+  private void addSegment(Segment segment, SegmentMetadata metadata) {
+    removeSegment(segment);
+    SegmentEntry entry = new SegmentEntry(segment);
+    segments.put(segment, entry);
+    if (metadata != null) {
+      VertexState start = vertices.get(metadata.startVertexId());
+      VertexState end = vertices.get(metadata.endVertexId());
+      if (start != null && end != null) {
+        attach(entry, start, end.point);
+        attach(entry, end, start.point);
+      }
+    }
+    Set<VertexState> candidates = new LinkedHashSet<>();
+    for (long key : coveredCells(segment)) {
+      segmentCells.computeIfAbsent(key, k -> new ArrayList<>(2)).add(entry);
+      entry.cells.add(key);
+    }
+    for (long key : neighbourhood(entry.cells)) {
+      List<VertexState> bucket = vertexCells.get(key);
+      if (bucket != null) {
+        candidates.addAll(bucket);
+      }
+    }
+    for (VertexState state : candidates) {
+      if (segmentContainsPoint(segment, state.point)) {
+        attachContainment(entry, state);
+      }
+    }
+  }
+
+  private void removeSegment(Segment segment) {
+    SegmentEntry entry = segments.remove(segment);
+    if (entry == null) {
+      return;
+    }
+    for (long key : entry.cells) {
+      List<SegmentEntry> bucket = segmentCells.get(key);
+      if (bucket != null) {
+        bucket.remove(entry);
+        if (bucket.isEmpty()) {
+          segmentCells.remove(key);
+        }
+      }
+    }
+    for (String id : entry.touched) {
+      VertexState state = vertices.get(id);
+      if (state != null && state.incident.remove(entry) != null) {
+        dirty.add(id);
+      }
+    }
+  }
+
+  private void attachContainment(SegmentEntry entry, VertexState state) {
+    Segment segment = entry.segment;
+    attach(entry, state, new Point2D(segment.x1(), segment.y1()));
+    attach(entry, state, new Point2D(segment.x2(), segment.y2()));
+  }
+
+  private void attach(SegmentEntry entry, VertexState state, Point2D other) {
+    state.incident.computeIfAbsent(entry, k -> new ArrayList<>(2)).add(other);
+    entry.touched.add(state.id);
+    dirty.add(state.id);
+  }
+
+  private List<Long> coveredCells(Segment segment) {
+    double dx = segment.x2() - segment.x1();
+    double dy = segment.y2() - segment.y1();
+    int steps = (int) Math.ceil(Math.hypot(dx, dy) / (CELL_SIZE * 0.5));
+    Set<Long> keys = new LinkedHashSet<>();
+    for (int i = 0; i <= steps; i++) {
+      double t = steps == 0 ? 0d : (double) i / steps;
+      keys.add(cellKey(segment.x1() + dx * t, segment.y1() + dy * t));
+    }
+    return new ArrayList<>(keys);
+  }
+
+  private Set<Long> neighbourhood(List<Long> keys) {
+    Set<Long> result = new LinkedHashSet<>();
+    for (long key : keys) {
+      long cx = key >> 32;
+      long cy = (int) key;
+      for (long dx = -1; dx <= 1; dx++) {
+        for (long dy = -1; dy <= 1; dy++) {
+          result.add(cellKey(cx + dx, cy + dy));
+        }
+      }
+    }
+    return result;
+  }
+
+  private boolean segmentContainsPoint(Segment segment, Point2D point) {
+    double minX = Math.min(segment.x1(), segment.x2()) - ON_SEGMENT_TOLERANCE;
+    double maxX = Math.max(segment.x1(), segment.x2()) + ON_SEGMENT_TOLERANCE;
+    double minY = Math.min(segment.y1(), segment.y2()) - ON_SEGMENT_TOLERANCE;
+    double maxY = Math.max(segment.y1(), segment.y2()) + ON_SEGMENT_TOLERANCE;
+    double px = point.getX();
+    double py = point.getY();
+    if (px < minX || px > maxX || py < minY || py > maxY) {
+      return false;
+    }
+    double dx = segment.x2() - segment.x1();
+    double dy = segment.y2() - segment.y1();
+    double lengthSq = dx * dx + dy * dy;
+    if (lengthSq < 1e-18) {
+      return Math.hypot(px - segment.x1(), py - segment.y1()) <= ON_SEGMENT_TOLERANCE;
+    }
+    double t = ((px - segment.x1()) * dx + (py - segment.y1()) * dy) / lengthSq;
+    t = Math.max(0d, Math.min(1d, t));
+    double projX = segment.x1() + t * dx;
+    double projY = segment.y1() + t * dy;
+    return Math.hypot(px - projX, py - projY) <= ON_SEGMENT_TOLERANCE;
+  }
+
+  private long cellIndex(double value) {
+    return (long) Math.floor(value / CELL_SIZE);
+  }
+
+  private long cellKey(double x, double y) {
+    return cellKey(cellIndex(x), cellIndex(y));
+  }
+
+  private long cellKey(long cx, long cy) {
+    return (cx << 32) | (cy & 0xffffffffL);
+  }
+
+  private static final class VertexState {
+    private final String id;
+    private final Point2D point;
+    private final Map<SegmentEntry, List<Point2D>> incident = new LinkedHashMap<>();
+
+    private VertexState(String id, Point2D point) {
+      this.id = id;
+      this.point = point;
+    }
+
+    private List<Point2D> incidentEnds() {
+      List<Point2D> ends = new ArrayList<>();
+      for (List<Point2D> points : incident.values()) {
+        ends.addAll(points);
+      }
+      return ends;
+    }
+  }
+
+  private static final class SegmentEntry {
+    private final Segment segment;
+    private final List<Long> cells = new ArrayList<>();
+    private final Set<String> touched = new LinkedHashSet<>(4);
+
+    private SegmentEntry(Segment segment) {
+      this.segment = segment;
+    }
+  }
+}
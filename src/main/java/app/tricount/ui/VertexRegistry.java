@@ -1,19 +1,70 @@
 package app.tricount.ui;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javafx.geometry.Point2D;
 
 public final class VertexRegistry {
+  public interface Listener {
+    void verticesChanged(List<Vertex> added, List<Vertex> removed);
+  }
+
   private final double mergeTolerance;
-  private final List<Vertex> vertices = new ArrayList<>();
+  private final double cellSize;
+  private final Map<Long, List<Vertex>> cells = new HashMap<>();
   private final Map<String, Vertex> byId = new HashMap<>();
+  private final List<Listener> listeners = new ArrayList<>();
+  private final Map<Vertex, Boolean> batchedChanges = new LinkedHashMap<>();
+  private final List<Vertex> vertexView = new SlotView<>() {
+    @Override
+    public Vertex get(int index) {
+      return slot(index);
+    }
+  };
+  private final List<Point2D> pointView = new SlotView<>() {
+    @Override
+    public Point2D get(int index) {
+      return slot(index).point();
+    }
+  };
+  private Vertex[] slots = new Vertex[16];
+  private int size;
   private int counter;
+  private int batchDepth;
 
   public VertexRegistry(double mergeTolerance) {
     this.mergeTolerance = mergeTolerance;
+    this.cellSize = mergeTolerance > 0 ? mergeTolerance : 1e-9;
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  public void beginBatch() {
+    batchDepth++;
+  }
+
+  public void endBatch() {
+    if (batchDepth == 0 || --batchDepth > 0 || batchedChanges.isEmpty()) {
+      return;
+    }
+    List<Vertex> added = new ArrayList<>();
+    List<Vertex> removed = new ArrayList<>();
+    for (Map.Entry<Vertex, Boolean> entry : batchedChanges.entrySet()) {
+      (entry.getValue() ? added : removed).add(entry.getKey());
+    }
+    batchedChanges.clear();
+    notifyListeners(added, removed);
   }
 
   public Vertex register(Point2D point) {
@@ -25,8 +76,8 @@ public final class VertexRegistry {
     String id = alphabeticalName(counter++);
     Vertex vertex = new Vertex(id, point.getX(), point.getY());
     vertex.incrementUsage();
-    vertices.add(vertex);
-    byId.put(id, vertex);
+    insert(vertex);
+    fireChanged(List.of(vertex), List.of());
     return vertex;
   }
 
@@ -34,8 +85,10 @@ public final class VertexRegistry {
     Vertex vertex = byId.get(id);
     if (vertex == null) {
       vertex = new Vertex(id, point.getX(), point.getY());
-      vertices.add(vertex);
-      byId.put(id, vertex);
+      insert(vertex);
+      vertex.incrementUsage();
+      fireChanged(List.of(vertex), List.of());
+      return;
     }
     vertex.incrementUsage();
   }
@@ -47,8 +100,8 @@ public final class VertexRegistry {
     }
     vertex.decrementUsage();
     if (vertex.usage() == 0) {
-      byId.remove(id);
-      vertices.remove(vertex);
+      delete(vertex);
+      fireChanged(List.of(), List.of(vertex));
     }
   }
 
@@ -56,31 +109,119 @@ public final class VertexRegistry {
     return byId.get(id);
   }
 
+  public int size() {
+    return size;
+  }
+
   public List<Vertex> vertices() {
-    return List.copyOf(vertices);
+    return vertexView;
   }
 
   public List<Point2D> snapPoints() {
-    List<Point2D> result = new ArrayList<>(vertices.size());
-    for (Vertex vertex : vertices) {
-      result.add(vertex.point());
-    }
-    return result;
+    return pointView;
   }
 
   public void clear() {
-    vertices.clear();
+    List<Vertex> removed = List.copyOf(vertexView);
+    Arrays.fill(slots, 0, size, null);
+    size = 0;
+    cells.clear();
     byId.clear();
     counter = 0;
+    if (!removed.isEmpty()) {
+      fireChanged(List.of(), removed);
+    }
   }
 
   private Vertex find(Point2D point) {
-    for (Vertex vertex : vertices) {
-      if (vertex.point().distance(point) <= mergeTolerance) {
-        return vertex;
+    long cx = cellIndex(point.getX());
+    long cy = cellIndex(point.getY());
+    Vertex best = null;
+    double bestDistance = Double.POSITIVE_INFINITY;
+    for (long dx = -1; dx <= 1; dx++) {
+      for (long dy = -1; dy <= 1; dy++) {
+        List<Vertex> bucket = cells.get(cellKey(cx + dx, cy + dy));
+        if (bucket == null) {
+          continue;
+        }
+        for (Vertex vertex : bucket) {
+          double distance = Math.hypot(vertex.x() - point.getX(), vertex.y() - point.getY());
+          if (distance <= mergeTolerance && distance < bestDistance) {
+            bestDistance = distance;
+            best = vertex;
+          }
+        }
       }
     }
-    return null;
+    return best;
+  }
+
+  private void insert(Vertex vertex) {
+    if (size == slots.length) {
+      slots = Arrays.copyOf(slots, size * 2);
+    }
+    vertex.slot = size;
+    slots[size++] = vertex;
+    byId.put(vertex.id(), vertex);
+    cells.computeIfAbsent(cellKey(vertex), k -> new ArrayList<>(1)).add(vertex);
+  }
+
+  private void delete(Vertex vertex) {
+    int slot = vertex.slot;
+    Vertex last = slots[--size];
+    slots[slot] = last;
+    last.slot = slot;
+    slots[size] = null;
+    vertex.slot = -1;
+    byId.remove(vertex.id());
+    long key = cellKey(vertex);
+    List<Vertex> bucket = cells.get(key);
+    if (bucket != null) {
+      bucket.remove(vertex);
+      if (bucket.isEmpty()) {
+        cells.remove(key);
+      }
+    }
+  }
+
+  private Vertex slot(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return slots[index];
+  }
+
+  private void fireChanged(List<Vertex> added, List<Vertex> removed) {
+    if (batchDepth == 0) {
+      notifyListeners(added, removed);
+      return;
+    }
+    for (Vertex vertex : added) {
+      batchedChanges.put(vertex, Boolean.TRUE);
+    }
+    for (Vertex vertex : removed) {
+      if (batchedChanges.remove(vertex) == null) {
+        batchedChanges.put(vertex, Boolean.FALSE);
+      }
+    }
+  }
+
+  private void notifyListeners(List<Vertex> added, List<Vertex> removed) {
+    for (Listener listener : List.copyOf(listeners)) {
+      listener.verticesChanged(added, removed);
+    }
+  }
+
+  private long cellIndex(double value) {
+    return (long) Math.floor(value / cellSize);
+  }
+
+  private long cellKey(Vertex vertex) {
+    return cellKey(cellIndex(vertex.x()), cellIndex(vertex.y()));
+  }
+
+  private long cellKey(long cx, long cy) {
+    return (cx << 32) ^ (cy & 0xffffffffL);
   }
 
   private String alphabeticalName(int value) {
@@ -94,16 +235,22 @@ public final class VertexRegistry {
     return sb.reverse().toString();
   }
 
+  private abstract class SlotView<T> extends AbstractList<T> {
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
   public static final class Vertex {
     private final String id;
-    private final double x;
-    private final double y;
+    private final Point2D point;
     private int usage;
+    private int slot = -1;
 
     private Vertex(String id, double x, double y) {
       this.id = id;
-      this.x = x;
-      this.y = y;
+      this.point = new Point2D(x, y);
     }
 
     public String id() {
@@ -111,11 +258,11 @@ public final class VertexRegistry {
     }
 
     public double x() {
-      return x;
+      return point.getX();
     }
 
     public double y() {
-      return y;
+      return point.getY();
     }
 
     public int usage() {
@@ -123,7 +270,7 @@ public final class VertexRegistry {
     }
 
     public Point2D point() {
-      return new Point2D(x, y);
+      return point;
     }
 
     private void incrementUsage() {
@@ -0,0 +1,51 @@
+package app.tricount.watch;
+
+import app.tricount.geometry.SegmentStore;
+import java.util.HashMap;
+import java.util.Map;
+
+public record GeometryDiff(int added, int removed) {
+  public static GeometryDiff between(SegmentStore before, SegmentStore after) {
+    if (before == null) {
+      return new GeometryDiff(after.size(), 0);
+    }
+    Map<Geometry, Integer> counts = new HashMap<>(before.size() * 2);
+    for (int i = 0; i < before.size(); i++) {
+      counts.merge(Geometry.of(before, i), 1, Integer::sum);
+    }
+    int added = 0;
+    for (int i = 0; i < after.size(); i++) {
+      Geometry key = Geometry.of(after, i);
+      Integer remaining = counts.get(key);
+      if (remaining == null) {
+        added++;
+      } else if (remaining == 1) {
+        counts.remove(key);
+      } else {
+        counts.put(key, remaining - 1);
+      }
+    }
+    int removed = 0;
+    for (int remaining : counts.values()) {
+      removed += remaining;
+    }
+    return new GeometryDiff(added, removed);
+  }
+
+  public boolean isEmpty() {
+    return added == 0 && removed == 0;
+  }
+
+  private record Geometry(double x1, double y1, double x2, double y2) {
+    static Geometry of(SegmentStore store, int index) {
+      double x1 = store.x1(index);
+      double y1 = store.y1(index);
+      double x2 = store.x2(index);
+      double y2 = store.y2(index);
+      if (Double.compare(x1, x2) > 0 || (x1 == x2 && Double.compare(y1, y2) > 0)) {
+        return new Geometry(x2, y2, x1, y1);
+      }
+      return new Geometry(x1, y1, x2, y2);
+    }
+  }
+}
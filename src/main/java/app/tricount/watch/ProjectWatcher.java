@@ -0,0 +1,180 @@
+package app.tricount.watch;
+
+import app.tricount.events.RecountEvent;
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.io.ProjectDefinition;
+import app.tricount.io.ProjectIO;
+import app.tricount.metrics.TriangleCounterMetrics;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+public final class ProjectWatcher {
+  public record Update(
+      GeometryDiff diff,
+      boolean recounted,
+      int segments,
+      int vertices,
+      int edges,
+      int triangles,
+      long loadNanos,
+      long graphNanos,
+      long contractNanos,
+      long triangleNanos) {}
+
+  private static final long SETTLE_MILLIS = 50;
+  private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+  private final Path file;
+  private final TriangleCounter counter;
+  private final double angleTolerance;
+  private final ProjectIO io = new ProjectIO();
+  private SegmentStore previous;
+  private double previousTolerance = Double.NaN;
+  private Update last;
+
+  public ProjectWatcher(Path file, TriangleCounter counter, double angleTolerance) {
+    this.file = file.toAbsolutePath().normalize();
+    this.counter = counter;
+    this.angleTolerance = angleTolerance;
+  }
+
+  public Update recount() throws IOException {
+    RecountEvent event = new RecountEvent();
+    event.begin();
+    Update update = recountProject();
+    TriangleCounterMetrics.get().watchRecount(update.recounted());
+    if (event.shouldCommit()) {
+      event.file = file.toString();
+      event.unchanged = !update.recounted();
+      event.added = update.diff().added();
+      event.removed = update.diff().removed();
+      event.segments = update.segments();
+      event.triangles = update.triangles();
+      event.commit();
+    }
+    return update;
+  }
+
+  private Update recountProject() throws IOException {
+    long started = System.nanoTime();
+    ProjectDefinition project = io.load(file);
+    long loadNanos = System.nanoTime() - started;
+    GeometryDiff diff = GeometryDiff.between(previous, project.store());
+    boolean toleranceChanged = Double.compare(project.tolerance(), previousTolerance) != 0;
+    if (last != null && diff.isEmpty() && !toleranceChanged) {
+      last = new Update(
+          diff, false, last.segments(), last.vertices(), last.edges(), last.triangles(), loadNanos, 0, 0, 0);
+      return last;
+    }
+    // Only a fully counted revision may become the baseline; after a failure the next save recounts.
+    previous = null;
+    previousTolerance = Double.NaN;
+    last = null;
+    long graphStart = System.nanoTime();
+    Graph planar = counter.buildPlanarGraph(project.store(), project.tolerance());
+    long contractStart = System.nanoTime();
+    Graph contracted = counter.contractStraightVertices(planar, angleTolerance);
+    long triangleStart = System.nanoTime();
+    int triangles = counter.triangles(contracted).size();
+    long finished = System.nanoTime();
+    last = new Update(
+        diff,
+        true,
+        project.store().size(),
+        contracted.vertexCount(),
+        contracted.edgeCount(),
+        triangles,
+        loadNanos,
+        contractStart - graphStart,
+        triangleStart - contractStart,
+        finished - triangleStart);
+    previous = project.store();
+    previousTolerance = project.tolerance();
+    return last;
+  }
+
+  public void run(PrintStream out) throws IOException, InterruptedException {
+    Path directory = file.getParent();
+    try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+      directory.register(
+          watcher,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      report(out);
+      out.printf("Watching %s (Ctrl+C to stop)%n", file);
+      while (true) {
+        if (!drain(watcher.take())) {
+          continue;
+        }
+        WatchKey more;
+        while ((more = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          drain(more);
+        }
+        report(out);
+      }
+    }
+  }
+
+  private boolean drain(WatchKey key) {
+    boolean touched = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW
+          || file.getFileName().equals(event.context())) {
+        touched = true;
+      }
+    }
+    key.reset();
+    return touched;
+  }
+
+  private void report(PrintStream out) {
+    String time = LocalTime.now().format(CLOCK);
+    Update update;
+    try {
+      update = recount();
+    } catch (IOException | RuntimeException error) {
+      out.printf("[%s] %s: %s%n", time, file.getFileName(), error.getMessage());
+      return;
+    }
+    if (!update.recounted()) {
+      out.printf(
+          Locale.US,
+          "[%s] geometry unchanged, triangles=%d | load %.1f ms%n",
+          time,
+          update.triangles(),
+          millis(update.loadNanos()));
+      return;
+    }
+    out.printf(
+        Locale.US,
+        "[%s] +%d -%d segments | segments=%d vertices=%d edges=%d triangles=%d"
+            + " | load %.1f ms, graph %.1f ms, contract %.1f ms, triangles %.1f ms%n",
+        time,
+        update.diff().added(),
+        update.diff().removed(),
+        update.segments(),
+        update.vertices(),
+        update.edges(),
+        update.triangles(),
+        millis(update.loadNanos()),
+        millis(update.graphNanos()),
+        millis(update.contractNanos()),
+        millis(update.triangleNanos()));
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+}
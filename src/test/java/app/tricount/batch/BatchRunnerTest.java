@@ -0,0 +1,109 @@
+package app.tricount.batch;
+
+import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.graph.VisualTriangleCounter;
+import app.tricount.io.ProjectIO;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class BatchRunnerTest {
+  private static final List<Segment> TRIANGLE = List.of(
+      new Segment(0, 0, 10, 0, "ab"),
+      new Segment(10, 0, 5, 8.66, "bc"),
+      new Segment(5, 8.66, 0, 0, "ca"));
+  private static final List<Segment> MEDIAN = List.of(
+      new Segment(0, 0, 10, 0, "ab"),
+      new Segment(10, 0, 5, 8.66, "bc"),
+      new Segment(5, 8.66, 0, 0, "ca"),
+      new Segment(5, 8.66, 5, 0, "median"));
+
+  @Test
+  void resolvesDirectoriesGlobsAndManifests() throws IOException {
+    Path dir = Files.createTempDirectory("batch-inputs");
+    ProjectIO io = new ProjectIO();
+    io.save(dir.resolve("a.json"), 1e-6, TRIANGLE);
+    Files.createDirectories(dir.resolve("nested"));
+    io.save(dir.resolve("nested/b.ndjson"), 1e-6, MEDIAN);
+    io.saveBinary(dir.resolve("nested/c.tcb"), 1e-6, MEDIAN);
+    Files.writeString(dir.resolve("notes.txt"), "not a project");
+    Path manifest = dir.resolve("manifest.txt");
+    Files.writeString(manifest, "# nightly\nnested/c.tcb\n\na.json\n");
+
+    assertEquals(3, BatchInputs.resolve(List.of(dir.toString()), null).size());
+    assertEquals(
+        List.of(dir.resolve("nested/b.ndjson"), dir.resolve("nested/c.tcb")),
+        BatchInputs.resolve(List.of(dir + "/nested/*"), null));
+    assertEquals(
+        List.of(dir.resolve("nested/c.tcb"), dir.resolve("a.json")),
+        BatchInputs.resolve(List.of(), manifest));
+  }
+
+  @Test
+  void streamsOneRowPerFileIncludingFailures() throws IOException {
+    Path dir = Files.createTempDirectory("batch-run");
+    ProjectIO io = new ProjectIO();
+    io.save(dir.resolve("triangle.json"), 1e-6, TRIANGLE);
+    io.save(dir.resolve("median.json"), 1e-6, MEDIAN);
+    Files.writeString(dir.resolve("broken.json"), "{\"segments\": [");
+    List<Path> inputs = BatchInputs.resolve(List.of(dir.toString()), null);
+    StringWriter out = new StringWriter();
+    BatchRunner.Summary summary;
+    try (BatchWriter writer = new BatchWriter(out, BatchWriter.Format.CSV)) {
+      summary = new BatchRunner(VisualTriangleCounter::new, 1e-6, 2).run(inputs, writer);
+    }
+    assertEquals(3, summary.files());
+    assertEquals(1, summary.failures());
+    List<String> lines = out.toString().lines().toList();
+    assertEquals(4, lines.size());
+    assertTrue(lines.get(0).startsWith("file,status,segments"));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith(dir.resolve("triangle.json") + ",ok,3,3,3,1,")));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith(dir.resolve("median.json") + ",ok,4,4,5,3,")));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith(dir.resolve("broken.json") + ",error,,,,,")));
+  }
+
+  @Test
+  void errorsFromTheEngineStillProduceAFailureRow() throws IOException {
+    Path dir = Files.createTempDirectory("batch-error");
+    new ProjectIO().save(dir.resolve("triangle.json"), 1e-6, TRIANGLE);
+    StringWriter out = new StringWriter();
+    BatchRunner.Summary summary;
+    try (BatchWriter writer = new BatchWriter(out, BatchWriter.Format.CSV)) {
+      summary = new BatchRunner(OverflowingCounter::new, 1e-6, 1)
+          .run(List.of(dir.resolve("triangle.json")), writer);
+    }
+    assertEquals(1, summary.failures());
+    List<String> lines = out.toString().lines().toList();
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(1).contains(",error,"));
+    assertTrue(lines.get(1).endsWith("StackOverflowError"));
+  }
+
+  private static final class OverflowingCounter implements TriangleCounter {
+    private final VisualTriangleCounter delegate = new VisualTriangleCounter();
+
+    @Override
+    public Graph buildPlanarGraph(SegmentStore segments, double coordTol) {
+      return delegate.buildPlanarGraph(segments, coordTol);
+    }
+
+    @Override
+    public Graph contractStraightVertices(Graph graph, double angleTol) {
+      return graph;
+    }
+
+    @Override
+    public List<int[]> triangles(Graph graph) {
+      throw new StackOverflowError();
+    }
+  }
+}
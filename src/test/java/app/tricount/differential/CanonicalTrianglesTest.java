@@ -0,0 +1,41 @@
+package app.tricount.differential;
+
+import app.tricount.geometry.PlanarGraphBuilder;
+import app.tricount.geometry.Segment;
+import app.tricount.graph.Graph;
+import app.tricount.graph.VisualTriangleCounter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CanonicalTrianglesTest {
+  @Test
+  void cornersWithinToleranceMatchAcrossGridBoundaries() {
+    // 0.00199 and 0.00201 straddle the boundary of a 0.004 grid.
+    CanonicalTriangles left = triangles(0.00199, 1e-3);
+    CanonicalTriangles right = triangles(0.00201, 1e-3);
+    assertTrue(left.sameAs(right));
+    assertEquals(0, right.missingFrom(left));
+  }
+
+  @Test
+  void distinctTrianglesAndMultiplicityAreCounted() {
+    CanonicalTriangles near = triangles(0, 1e-3);
+    CanonicalTriangles far = triangles(1, 1e-3);
+    assertFalse(near.sameAs(far));
+    assertEquals(1, near.missingFrom(far));
+    assertEquals(1, near.missingFrom(CanonicalTriangles.EMPTY));
+    assertEquals(0, CanonicalTriangles.EMPTY.missingFrom(near));
+  }
+
+  private static CanonicalTriangles triangles(double x, double tolerance) {
+    Graph graph = new PlanarGraphBuilder().build(List.of(
+        new Segment(x, 0, 10, 0, "a"),
+        new Segment(10, 0, 5, 8, "b"),
+        new Segment(5, 8, x, 0, "c")), tolerance);
+    return CanonicalTriangles.of(graph, new VisualTriangleCounter().triangles(graph));
+  }
+}
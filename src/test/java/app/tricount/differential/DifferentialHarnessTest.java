@@ -0,0 +1,125 @@
+package app.tricount.differential;
+
+import app.tricount.figures.Figure;
+import app.tricount.figures.FigureGenerators;
+import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.graph.VisualTriangleCounter;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class DifferentialHarnessTest {
+  @Test
+  void identicalEnginesAgree() {
+    DifferentialHarness harness = new DifferentialHarness(
+        Map.of("visual", VisualTriangleCounter::new, "copy", VisualTriangleCounter::new), "visual", 1e-6, 2, 1);
+    DifferentialHarness.Report report = harness.run(
+        List.of(caseOf(FigureGenerators.grid(3)), caseOf(FigureGenerators.randomLines(12, 5))));
+    assertEquals(0, report.disagreements());
+    assertEquals(28, report.outcomes().get(0).runs().get(0).triangles());
+    assertTrue(report.speedup("copy") > 0);
+  }
+
+  @Test
+  void droppedTrianglesAreReportedAndShrunk() {
+    DifferentialHarness harness = new DifferentialHarness(
+        Map.of("visual", VisualTriangleCounter::new, "lossy", LossyCounter::new), "visual", 1e-6, 1, 1);
+    DifferentialHarness.Case input = caseOf(FigureGenerators.subdivision(3));
+    DifferentialHarness.Outcome outcome = harness.run(List.of(input)).outcomes().get(0);
+    assertFalse(outcome.agrees());
+    DifferentialHarness.Run lossy =
+        outcome.runs().stream().filter(run -> run.engine().equals("lossy")).findFirst().orElseThrow();
+    assertEquals(0, lossy.extra());
+    assertTrue(lossy.missing() > 0);
+
+    List<Segment> minimal = harness.shrink(input, "lossy");
+    assertEquals(3, minimal.size());
+  }
+
+  @Test
+  void crashingEngineIsReportedAsDisagreementAndShrunk() {
+    DifferentialHarness harness = new DifferentialHarness(
+        Map.of("visual", VisualTriangleCounter::new, "crashing", CrashingCounter::new), "visual", 1e-6, 2, 1);
+    DifferentialHarness.Case input = caseOf(FigureGenerators.grid(2));
+    DifferentialHarness.Report report = harness.run(List.of(input, caseOf(FigureGenerators.fan(3, 1))));
+    assertEquals(2, report.disagreements());
+    DifferentialHarness.Run crashed = report.outcomes().get(0).runs().stream()
+        .filter(run -> run.engine().equals("crashing"))
+        .findFirst()
+        .orElseThrow();
+    assertFalse(crashed.agrees());
+    assertTrue(crashed.status().startsWith("error: IllegalStateException"), crashed.status());
+
+    assertEquals(2, harness.shrink(input, "crashing").size());
+  }
+
+  @Test
+  void deltaDebuggerFindsMinimalFailingSubset() {
+    List<Integer> input = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    List<Integer> minimal = DeltaDebugger.minimize(input, items -> items.contains(3) && items.contains(8));
+    assertEquals(List.of(3, 8), minimal);
+  }
+
+  private static DifferentialHarness.Case caseOf(Figure figure) {
+    return new DifferentialHarness.Case(figure.family(), figure.segments(), figure.tolerance());
+  }
+
+  // Misses every triangle with a corner at the origin.
+  private static final class LossyCounter implements TriangleCounter {
+    private final VisualTriangleCounter delegate = new VisualTriangleCounter();
+
+    @Override
+    public Graph buildPlanarGraph(SegmentStore segments, double coordTol) {
+      return delegate.buildPlanarGraph(segments, coordTol);
+    }
+
+    @Override
+    public Graph contractStraightVertices(Graph graph, double angleTol) {
+      return graph;
+    }
+
+    @Override
+    public List<int[]> triangles(Graph graph) {
+      return delegate.triangles(graph).stream()
+          .filter(tri -> {
+            for (int v : tri) {
+              if (graph.x(v) == 0 && graph.y(v) == 0) {
+                return false;
+              }
+            }
+            return true;
+          })
+          .toList();
+    }
+  }
+
+  // Fails on any graph with four or more vertices.
+  private static final class CrashingCounter implements TriangleCounter {
+    private final VisualTriangleCounter delegate = new VisualTriangleCounter();
+
+    @Override
+    public Graph buildPlanarGraph(SegmentStore segments, double coordTol) {
+      return delegate.buildPlanarGraph(segments, coordTol);
+    }
+
+    @Override
+    public Graph contractStraightVertices(Graph graph, double angleTol) {
+      return graph;
+    }
+
+    @Override
+    public List<int[]> triangles(Graph graph) {
+      if (graph.vertexCount() >= 4) {
+        throw new IllegalStateException("too many vertices");
+      }
+      return delegate.triangles(graph);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package app.tricount.events;
+
+import app.tricount.figures.Figure;
+import app.tricount.figures.FigureGenerators;
+import app.tricount.graph.VisualTriangleCounter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class RecordingTriangleCounterTest {
+  @Test
+  void pipelineStagesAreRecorded() throws Exception {
+    Figure figure = FigureGenerators.grid(3);
+    Path dump = Files.createTempFile("tricount", ".jfr");
+    try (Recording recording = new Recording()) {
+      for (String name : List.of("Noding", "VertexMerge", "Contraction", "Enumeration")) {
+        recording.enable("app.tricount." + name).withoutThreshold();
+      }
+      recording.start();
+      new RecordingTriangleCounter("visual", new VisualTriangleCounter())
+          .countTriangles(figure.segments(), figure.tolerance(), 1e-6);
+      recording.stop();
+      recording.dump(dump);
+
+      Map<String, RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+          .collect(Collectors.toMap(event -> event.getEventType().getName(), event -> event, (a, b) -> b));
+      assertEquals(figure.segments().size(), events.get("app.tricount.Noding").getInt("inputSegments"));
+      RecordedEvent merge = events.get("app.tricount.VertexMerge");
+      assertEquals(16, merge.getInt("vertices"));
+      assertTrue(merge.getInt("merged") > 0);
+      assertEquals("visual", events.get("app.tricount.Contraction").getString("engine"));
+      assertEquals(figure.triangles(), events.get("app.tricount.Enumeration").getInt("triangles"));
+    } finally {
+      Files.deleteIfExists(dump);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package app.tricount.figures;
+
+import app.tricount.graph.VisualTriangleCounter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class FigureGeneratorsTest {
+  @Test
+  void closedFormCountsMatchKnownValues() {
+    assertEquals(28, FigureGenerators.grid(3).triangles());
+    assertEquals(13, FigureGenerators.subdivision(3).triangles());
+    assertEquals(48, FigureGenerators.subdivision(5).triangles());
+    assertEquals(30, FigureGenerators.fan(5, 3).triangles());
+    assertEquals(12, FigureGenerators.hatching(6, 7).triangles());
+  }
+
+  @Test
+  void engineCountMatchesEveryFamilyAcrossSizes() {
+    VisualTriangleCounter counter = new VisualTriangleCounter();
+    for (String family : FigureGenerators.FAMILIES) {
+      for (int size = 1; size <= 12; size += 3) {
+        Figure figure = FigureGenerators.generate(family, size, 42);
+        int counted = counter.countTriangles(figure.segments(), figure.tolerance(), 1e-6).size();
+        assertEquals(figure.triangles(), counted, family + " size " + size);
+      }
+    }
+  }
+
+  @Test
+  void randomFiguresAreReproducibleFromTheirSeed() {
+    Figure first = FigureGenerators.randomLines(20, 7);
+    Figure second = FigureGenerators.randomLines(20, 7);
+    assertEquals(first.segments(), second.segments());
+    assertEquals(first.triangles(), second.triangles());
+    assertEquals(
+        FigureGenerators.nearCoincident(6, 3).segments(), FigureGenerators.nearCoincident(6, 3).segments());
+  }
+
+  @Test
+  void unknownFamilyIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> FigureGenerators.generate("spiral", 4, 0));
+  }
+}
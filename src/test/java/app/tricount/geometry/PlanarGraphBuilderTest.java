@@ -0,0 +1,25 @@
+package app.tricount.geometry;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class PlanarGraphBuilderTest {
+  private static final List<Segment> CROSS = List.of(
+      new Segment(0, 0, 10, 10, "a"),
+      new Segment(0, 10, 10, 0, "b"));
+
+  @Test
+  void interruptedBuildIsCancelled() {
+    Thread.currentThread().interrupt();
+    try {
+      assertThrows(CancellationException.class, () -> new PlanarGraphBuilder().build(CROSS, 1e-6));
+    } finally {
+      Thread.interrupted();
+    }
+    assertEquals(5, new PlanarGraphBuilder().build(CROSS, 1e-6).vertexCount());
+  }
+}
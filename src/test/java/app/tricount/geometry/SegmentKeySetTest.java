@@ -0,0 +1,40 @@
+package app.tricount.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class SegmentKeySetTest {
+  @Test
+  void reversedAndNearbyEndpointsAreDuplicates() {
+    SegmentKeySet set = new SegmentKeySet(0.01);
+    assertTrue(set.add(0, 0, 10, 0));
+    assertFalse(set.add(10, 0, 0, 0));
+    assertFalse(set.add(0.001, 0, 10, 0.002));
+    assertTrue(set.add(0, 0, 10, 1));
+    assertEquals(2, set.size());
+  }
+
+  @Test
+  void keysKeepFullCoordinateRange() {
+    SegmentKeySet set = new SegmentKeySet(1);
+    assertTrue(set.add(0, 0, 1, 0));
+    assertTrue(set.add(4294967296d, 0, 1, 0));
+    assertTrue(set.add(0, 4294967296d, 1, 0));
+    assertEquals(3, set.size());
+  }
+
+  @Test
+  void growsWithoutLosingEntries() {
+    SegmentKeySet set = new SegmentKeySet(1e-6, 1);
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(set.add(i, -i, i + 1, i * 3));
+    }
+    for (int i = 0; i < 10_000; i++) {
+      assertFalse(set.add(i + 1, i * 3, i, -i));
+    }
+    assertEquals(10_000, set.size());
+  }
+}
@@ -0,0 +1,62 @@
+package app.tricount.geometry;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class SegmentStoreTest {
+  @Test
+  void snapshotsAreIsolatedFromLaterEdits() {
+    Segment a = new Segment(0, 0, 1, 0, "a");
+    Segment b = new Segment(1, 0, 1, 1, "b");
+    Segment c = new Segment(1, 1, 0, 0, "c");
+    SegmentStore store = SegmentStore.of(List.of(a, b));
+    SegmentStore first = store.snapshot();
+    store.add(c);
+    SegmentStore second = store.snapshot();
+    store.removeRange(0, 1);
+    store.insert(1, a);
+    assertEquals(List.of(a, b), first.asList());
+    assertEquals(List.of(a, b, c), second.asList());
+    assertEquals(List.of(b, a, c), store.asList());
+    store.clear();
+    assertEquals(3, second.size());
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  void repeatedIdsShareOneName() {
+    SegmentStore store = new SegmentStore();
+    store.add(0, 0, 1, 0, new String("wall"));
+    store.add(1, 0, 1, 1, new String("wall"));
+    assertSame(store.id(0), store.id(1));
+    SegmentStore snapshot = store.snapshot();
+    store.clear();
+    for (int i = 0; i < 40; i++) {
+      store.add(i, 0, i, 1, "s" + i);
+    }
+    assertEquals("wall", snapshot.id(1));
+    assertEquals("s39", store.id(39));
+  }
+
+  @Test
+  void snapshotsAreReadOnly() {
+    SegmentStore snapshot = new SegmentStore().snapshot();
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.add(0, 0, 1, 1, "s"));
+  }
+
+  @Test
+  void growsPastInitialCapacity() {
+    SegmentStore store = new SegmentStore(1);
+    for (int i = 0; i < 100; i++) {
+      store.add(i, 0, i, 1, "s" + i);
+    }
+    store.removeRange(10, 90);
+    assertEquals(20, store.size());
+    assertEquals("s90", store.id(10));
+    assertEquals(90d, store.x1(10), 0d);
+  }
+}
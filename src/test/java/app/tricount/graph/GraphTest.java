@@ -0,0 +1,37 @@
+package app.tricount.graph;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class GraphTest {
+  @Test
+  void arrayConstructorLeavesCallerArraysAlone() {
+    double[] xs = {0, 1, 0};
+    double[] ys = {0, 0, 1};
+    int[] edgeEnds = {1, 0, 2, 1, 0, 2};
+    int[] segmentEnds = {2, 0};
+    Graph graph = new Graph(xs, ys, edgeEnds, null, 1e-6, segmentEnds, new int[0], new int[0]);
+    assertArrayEquals(new int[] {1, 0, 2, 1, 0, 2}, edgeEnds);
+    assertArrayEquals(new int[] {2, 0}, segmentEnds);
+    assertEquals(0, graph.edgeU(0));
+    assertEquals(1, graph.edgeV(0));
+
+    xs[1] = 5;
+    edgeEnds[0] = 2;
+    assertEquals(1d, graph.x(1), 0d);
+    assertEquals(0, graph.edgeU(0));
+    assertEquals(0, graph.segmentEdgeU(0));
+  }
+
+  @Test
+  void adoptTakesTheArraysWithoutCopying() {
+    int[] edgeEnds = {1, 0};
+    Graph graph = Graph.adopt(new double[] {0, 1}, new double[] {0, 0}, edgeEnds, null, 1e-6, new int[0], new int[0],
+        new int[0]);
+    assertArrayEquals(new int[] {0, 1}, edgeEnds);
+    edgeEnds[1] = 0;
+    assertEquals(0, graph.edgeV(0));
+  }
+}
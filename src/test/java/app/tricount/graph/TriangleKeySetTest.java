@@ -0,0 +1,44 @@
+package app.tricount.graph;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TriangleKeySetTest {
+  @Test
+  void vertexOrderDoesNotMatter() {
+    TriangleKeySet set = new TriangleKeySet();
+    assertTrue(set.add(3, 1, 2));
+    assertFalse(set.add(1, 2, 3));
+    assertFalse(set.add(new int[] {2, 3, 1}));
+    assertTrue(set.contains(3, 2, 1));
+    assertFalse(set.contains(1, 2, 4));
+    assertEquals(1, set.size());
+  }
+
+  @Test
+  void idsAboveTwentyOneBitsStayDistinct() {
+    TriangleKeySet set = new TriangleKeySet();
+    int high = 1 << 21;
+    assertTrue(set.add(0, 1, high));
+    assertTrue(set.add(0, 1, 0));
+    assertTrue(set.add(0, 2, 0));
+    assertTrue(set.add(high, high + 1, Integer.MAX_VALUE));
+    assertTrue(set.add(high, high + 1, Integer.MAX_VALUE - 1));
+    assertEquals(5, set.size());
+  }
+
+  @Test
+  void growsWithoutLosingEntries() {
+    TriangleKeySet set = new TriangleKeySet(1);
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(set.add(i, i + 5_000_000, i + 100_000_000));
+    }
+    for (int i = 0; i < 10_000; i++) {
+      assertFalse(set.add(i + 100_000_000, i, i + 5_000_000));
+    }
+    assertEquals(10_000, set.size());
+  }
+}
@@ -0,0 +1,229 @@
+package app.tricount.io;
+
+import app.tricount.geometry.Segment;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ProjectIOTest {
+  @Test
+  void loadSkipsZeroLengthAndDuplicateSegments() throws IOException {
+    ProjectDefinition project = load("""
+        {
+          "tolerance": 0.01,
+          "segments": [
+            {"id": "ab", "x1": 0, "y1": 0, "x2": 10, "y2": 0},
+            {"id": "ba", "x1": 10, "y1": 0, "x2": 0, "y2": 0},
+            {"id": "dot", "x1": 3, "y1": 3, "x2": 3.001, "y2": 3},
+            {"x1": 0, "y1": 0, "x2": 0, "y2": 5, "color": "red"}
+          ]
+        }
+        """);
+    assertEquals(0.01, project.tolerance(), 0d);
+    List<Segment> segments = project.segments();
+    assertEquals(2, segments.size());
+    assertEquals("ab", segments.get(0).id());
+    assertEquals("s1", segments.get(1).id());
+  }
+
+  @Test
+  void toleranceAfterSegmentsStillApplies() throws IOException {
+    ProjectDefinition project = load("""
+        {
+          "segments": [
+            {"id": "a", "x1": 0, "y1": 0, "x2": 0.5, "y2": 0},
+            {"id": "b", "x1": 0, "y1": 0, "x2": 10, "y2": 0}
+          ],
+          "tolerance": 1
+        }
+        """);
+    assertEquals(1d, project.tolerance(), 0d);
+    assertEquals(1, project.segments().size());
+    assertEquals("b", project.segments().get(0).id());
+  }
+
+  @Test
+  void missingToleranceFallsBackToDefault() throws IOException {
+    ProjectDefinition project = load("{\"segments\": []}");
+    assertEquals(1e-6, project.tolerance(), 0d);
+    assertEquals(0, project.segments().size());
+  }
+
+  @Test
+  void coordinatesAcceptNumbersNumericStringsAndNullOnly() throws IOException {
+    ProjectDefinition project = load("""
+        {"tolerance": "0.5", "segments": [{"id": 7, "x1": null, "y1": 0, "x2": "10", "y2": 0}]}
+        """);
+    assertEquals(0.5, project.tolerance(), 0d);
+    assertEquals(new Segment(0, 0, 10, 0, "7"), project.segments().get(0));
+
+    assertThrows(IOException.class, () -> load("""
+        {"segments": [{"x1": {"value": 1}, "y1": 0, "x2": 10, "y2": 0}]}
+        """));
+    assertThrows(IOException.class, () -> load("{\"tolerance\": [1], \"segments\": []}"));
+    assertThrows(IOException.class, () -> load("""
+        {"segments": [{"x1": true, "y1": 0, "x2": 10, "y2": 0}]}
+        """));
+    assertThrows(IOException.class, () -> load("""
+        {"segments": [{"id": ["a"], "x1": 0, "y1": 0, "x2": 10, "y2": 0}]}
+        """));
+
+    Path file = Files.createTempFile("project", ProjectIO.NDJSON_EXTENSION);
+    try {
+      Files.writeString(file, "{\"tolerance\": 0.5}\n{\"x1\": [0], \"y1\": 0, \"x2\": 3, \"y2\": 0}\n");
+      assertThrows(IOException.class, () -> new ProjectIO().load(file));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void savedProjectsRoundTrip() throws IOException {
+    List<Segment> segments = List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bc"));
+    ProjectIO io = new ProjectIO();
+    for (boolean compact : new boolean[] {false, true}) {
+      Path file = Files.createTempFile("project", ".json");
+      try {
+        long[] reported = new long[2];
+        io.save(file, 1e-3, segments, compact, (done, total) -> {
+          reported[0] = done;
+          reported[1] = total;
+        });
+        assertEquals(2, reported[0]);
+        assertEquals(2, reported[1]);
+        ProjectDefinition project = io.load(file);
+        assertEquals(1e-3, project.tolerance(), 0d);
+        assertEquals(segments, project.segments());
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  @Test
+  void binaryProjectsConvertBothWays() throws IOException {
+    List<Segment> segments = List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bč"));
+    ProjectIO io = new ProjectIO();
+    Path json = Files.createTempFile("project", ".json");
+    Path binary = Files.createTempFile("project", ProjectIO.BINARY_EXTENSION);
+    Path back = Files.createTempFile("project", ".json");
+    try {
+      io.save(json, 1e-3, segments);
+      io.convert(json, binary);
+      BinaryProject mapped = BinaryProject.open(binary);
+      assertEquals(2, mapped.size());
+      assertEquals(8.66, mapped.y2().get(1), 0d);
+      assertEquals("bč", mapped.id(1));
+      io.convert(binary, back);
+      ProjectDefinition project = io.load(back);
+      assertEquals(1e-3, project.tolerance(), 0d);
+      assertEquals(segments, project.segments());
+      assertEquals(segments, io.load(binary).segments());
+    } finally {
+      Files.deleteIfExists(json);
+      Files.deleteIfExists(binary);
+      Files.deleteIfExists(back);
+    }
+  }
+
+  @Test
+  void binaryProjectsRejectCorruptIdOffsets() throws IOException {
+    Path binary = Files.createTempFile("project", ProjectIO.BINARY_EXTENSION);
+    try {
+      BinaryProject.write(binary, 1e-3, List.of(new Segment(0, 0, 10, 0, "ab"), new Segment(10, 0, 5, 8, "bc")));
+      byte[] bytes = Files.readAllBytes(binary);
+      int offsets = 24 + 4 * 2 * Double.BYTES;
+      for (int[] corrupt : new int[][] {{0, -1}, {1, 5}, {2, 1}}) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offsets + corrupt[0] * Integer.BYTES, corrupt[1]);
+        Files.write(binary, copy);
+        assertThrows(IOException.class, () -> BinaryProject.open(binary));
+        assertThrows(IOException.class, () -> BinaryProject.wrap(ByteBuffer.wrap(copy)));
+      }
+    } finally {
+      Files.deleteIfExists(binary);
+    }
+  }
+
+  @Test
+  void binaryProjectsRejectColumnsTooLargeToMap() {
+    ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+    header.put(BinaryProject.MAGIC).putDouble(1e-3).putLong(300_000_000L).flip();
+    IOException error = assertThrows(IOException.class, () -> BinaryProject.wrap(header));
+    assertTrue(error.getMessage().contains("2 GiB"), error.getMessage());
+  }
+
+  @Test
+  void ndjsonChunksMergeInFileOrder() throws IOException {
+    StringBuilder lines = new StringBuilder("{\"tolerance\": 0.5}\n");
+    for (int i = 0; i < 40; i++) {
+      int x = i % 25;
+      lines.append("{\"x1\": ").append(x).append(", \"y1\": 0, \"x2\": ").append(x)
+          .append(", \"y2\": ").append(i == 7 ? "0.1" : "3").append("}\n");
+    }
+    Path file = Files.createTempFile("project", ProjectIO.NDJSON_EXTENSION);
+    try {
+      Files.writeString(file, lines);
+      ProjectIO io = new ProjectIO();
+      List<Segment> sequential = io.load(file).segments();
+      for (int chunks : new int[] {1, 3, 7, 64}) {
+        List<Segment> parallel = new ArrayList<>();
+        assertEquals(0.5, io.loadNdjson(file, parallel::add, chunks), 0d);
+        assertEquals(sequential, parallel);
+      }
+      assertEquals(25, sequential.size());
+      assertEquals("s1", sequential.get(0).id());
+      assertEquals(8d, sequential.get(7).x1(), 0d);
+
+      io.save(file, 0.5, sequential);
+      assertEquals(sequential, io.load(file).segments());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void gzipProjectsLoadTransparently() throws IOException {
+    List<Segment> segments = List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bc"));
+    ProjectIO io = new ProjectIO();
+    for (String suffix : new String[] {".json.gz", ".ndjson.gz"}) {
+      Path file = Files.createTempFile("project", suffix);
+      try {
+        io.save(file, 1e-3, segments);
+        byte[] bytes = Files.readAllBytes(file);
+        assertEquals((byte) 0x1f, bytes[0]);
+        assertEquals((byte) 0x8b, bytes[1]);
+        ProjectDefinition project = io.load(file);
+        assertEquals(1e-3, project.tolerance(), 0d);
+        assertEquals(segments, project.segments());
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  private ProjectDefinition load(String json) throws IOException {
+    Path file = Files.createTempFile("project", ".json");
+    try {
+      Files.writeString(file, json);
+      return new ProjectIO().load(file);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
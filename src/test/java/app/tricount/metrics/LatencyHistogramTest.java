@@ -0,0 +1,35 @@
+package app.tricount.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class LatencyHistogramTest {
+  @Test
+  void recordsIntoDoublingBuckets() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(50_000);
+    histogram.record(100_000);
+    histogram.record(150_000);
+    histogram.record(1_000_000);
+    long[] counts = histogram.counts();
+    assertEquals(2, counts[0]);
+    assertEquals(1, counts[1]);
+    assertEquals(1, counts[4]);
+    assertEquals(4, histogram.count());
+    assertEquals(0.325, histogram.meanMillis(), 1e-9);
+    assertEquals(0.1, histogram.percentileMillis(0.5), 1e-9);
+    assertEquals(1.6, histogram.percentileMillis(0.99), 1e-9);
+  }
+
+  @Test
+  void overflowReportsTheSlowestSample() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(60_000_000_000L);
+    assertEquals(1, histogram.counts()[LatencyHistogram.upperBoundsMillis().length]);
+    assertEquals(60_000, histogram.percentileMillis(0.99), 1e-9);
+    histogram.reset();
+    assertEquals(0, histogram.count());
+    assertEquals(0, histogram.percentileMillis(0.99), 1e-9);
+  }
+}
@@ -0,0 +1,64 @@
+package app.tricount.metrics;
+
+import app.tricount.events.RecordingTriangleCounter;
+import app.tricount.figures.Figure;
+import app.tricount.figures.FigureGenerators;
+import app.tricount.graph.VisualTriangleCounter;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TriangleCounterMetricsTest {
+  @Test
+  void stageTimingsAndSizesAreVisibleOverJmx() throws Exception {
+    TriangleCounterMetrics metrics = TriangleCounterMetrics.get();
+    metrics.reset();
+    Figure figure = FigureGenerators.fan(4, 2);
+    new RecordingTriangleCounter("visual", new VisualTriangleCounter())
+        .countTriangles(figure.segments(), figure.tolerance(), 1e-6);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(TriangleCounterMetrics.OBJECT_NAME);
+    assertEquals((int) figure.triangles(), server.getAttribute(name, "Triangles"));
+    assertEquals(figure.segments().size(), server.getAttribute(name, "Segments"));
+    CompositeData lastRun = (CompositeData) server.getAttribute(name, "LastRun");
+    assertEquals((int) figure.triangles(), lastRun.get("triangles"));
+    assertEquals(server.getAttribute(name, "PlanarVertices"), lastRun.get("planarVertices"));
+    assertEquals(server.getAttribute(name, "Vertices"), lastRun.get("vertices"));
+    assertTrue((int) lastRun.get("planarEdges") >= (int) lastRun.get("edges"), lastRun.toString());
+    TabularData counts = (TabularData) server.getAttribute(name, "StageCounts");
+    for (Object row : counts.values()) {
+      CompositeData entry = (CompositeData) row;
+      assertEquals(1L, entry.get("value"), (String) entry.get("key"));
+    }
+    assertEquals(TriangleCounterMetrics.STAGES.size(), counts.size());
+  }
+
+  @Test
+  void onlyCurrentRunsFeedTheRecomputeHistogram() {
+    TriangleCounterMetrics metrics = new TriangleCounterMetrics();
+    metrics.requested(false);
+    metrics.requested(true);
+    metrics.submitted(false);
+    metrics.started();
+    metrics.submitted(true);
+    metrics.started();
+    metrics.finished(2_000_000, true, false);
+    metrics.finished(3_000_000, true, true);
+    assertEquals(2, metrics.getRecomputeRequests());
+    assertEquals(1, metrics.getCoalescedRequests());
+    assertEquals(1, metrics.getSupersededRuns());
+    assertEquals(1, metrics.getDeliveredRuns());
+    assertEquals(0, metrics.getInFlightRuns());
+    assertEquals(3.0, metrics.getRecomputeLatencyMeanMillis(), 1e-9);
+    Map<String, Long> stages = metrics.getStageCounts();
+    assertTrue(stages.values().stream().allMatch(count -> count == 0));
+  }
+}
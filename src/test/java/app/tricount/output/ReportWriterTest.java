@@ -0,0 +1,151 @@
+package app.tricount.output;
+
+import app.tricount.figures.Figure;
+import app.tricount.figures.FigureGenerators;
+import app.tricount.geometry.Segment;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.graph.VisualTriangleCounter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ReportWriterTest {
+  @Test
+  void radixOrderMatchesComparatorOrder() {
+    Random random = new Random(7);
+    int count = 5_000;
+    int[] first = new int[count];
+    int[] second = new int[count];
+    for (int i = 0; i < count; i++) {
+      first[i] = random.nextInt(40) - 20;
+      second[i] = random.nextInt();
+    }
+    Integer[] expected = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      expected[i] = i;
+    }
+    Arrays.sort(expected, Comparator.<Integer>comparingInt(i -> first[i]).thenComparingInt(i -> second[i]));
+    int[] actual = RadixSort.order(count, first, second);
+    for (int i = 0; i < count; i++) {
+      assertEquals(expected[i].intValue(), actual[i]);
+    }
+  }
+
+  @Test
+  void vertexRanksFollowAlphabeticNames() {
+    VertexNames names = new VertexNames(30);
+    assertEquals("A", names.name(0));
+    assertEquals("Z", names.name(25));
+    assertEquals("AA", names.name(26));
+    assertEquals(0, names.rank(0));
+    assertEquals(1, names.rank(26));
+    assertEquals(5, names.rank(1));
+  }
+
+  @Test
+  void machineFormatsListCanonicalTriangles() throws IOException {
+    TriangleCounter counter = new VisualTriangleCounter();
+    List<Segment> segments = List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bc"),
+        new Segment(5, 8.66, 0, 0, "ca"),
+        new Segment(5, 8.66, 5, 0, "median"));
+    Graph graph = counter.contractStraightVertices(counter.buildPlanarGraph(segments, 1e-6), 1e-6);
+    List<int[]> reversed = new ArrayList<>();
+    for (int[] triangle : counter.triangles(graph)) {
+      reversed.add(0, new int[] {triangle[2], triangle[1], triangle[0]});
+    }
+    CountReport report = new CountReport(segments.size(), graph, reversed);
+    ReportWriter writer = new ReportWriter();
+
+    String csv = write(writer, report, ReportWriter.Format.CSV);
+    List<String> triangles = csv.lines().filter(line -> line.startsWith("triangle,")).toList();
+    assertEquals(3, triangles.size());
+    for (int i = 1; i < triangles.size(); i++) {
+      assertTrue(triangles.get(i - 1).compareTo(triangles.get(i)) < 0, csv);
+    }
+
+    String json = write(writer, report, ReportWriter.Format.JSON);
+    assertTrue(json.contains("\"triangleCount\":3"), json);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.write(report, ReportWriter.Format.BINARY, out);
+    ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    byte[] magic = new byte[ReportWriter.BINARY_MAGIC.length];
+    buffer.get(magic);
+    assertArrayEquals(ReportWriter.BINARY_MAGIC, magic);
+    assertEquals(4, buffer.getInt());
+    int vertices = buffer.getInt();
+    int edges = buffer.getInt();
+    assertEquals(3, buffer.getInt());
+    assertEquals(24 + vertices * 16 + edges * 8 + 3 * 12, buffer.capacity());
+  }
+
+  // Printed by the CLI before output moved to ReportWriter; text output must not change up to 26 vertices.
+  // Written under a comma-decimal default locale, since the text format pins '.' and '\n'.
+  @Test
+  void textOutputMatchesTheOriginalCliForSmallFigures() throws IOException {
+    TriangleCounter counter = new VisualTriangleCounter();
+    Figure figure = FigureGenerators.fan(3, 1);
+    Graph planar = counter.buildPlanarGraph(figure.segments(), figure.tolerance());
+    Graph graph = counter.contractStraightVertices(planar, 1e-6);
+    CountReport report = new CountReport(figure.segments().size(), graph, counter.triangles(graph));
+    Locale previous = Locale.getDefault();
+    String text;
+    try {
+      Locale.setDefault(Locale.GERMANY);
+      text = write(new ReportWriter(), report, ReportWriter.Format.TEXT);
+    } finally {
+      Locale.setDefault(previous);
+    }
+    assertEquals("""
+        Segments: 4
+        Vertices: 6
+        Edges: 7
+        Triangles: 3
+
+        Vertices:
+          A (id=0): (0.000000, 3.000000)
+          B (id=1): (-1.000000, 0.000000)
+          C (id=2): (0.000000, 0.000000)
+          D (id=3): (1.000000, 0.000000)
+          E (id=4): (-1.500000, 0.000000)
+          F (id=5): (1.500000, 0.000000)
+
+        Edges:
+          A-B (ids=0-1)
+          A-C (ids=0-2)
+          A-D (ids=0-3)
+          B-C (ids=1-2)
+          B-E (ids=1-4)
+          C-D (ids=2-3)
+          D-F (ids=3-5)
+
+        Triangles:
+          ABC (ids=0,1,2) area=1.500000
+          ABD (ids=0,1,3) area=3.000000
+          ACD (ids=0,2,3) area=1.500000
+        """, text);
+  }
+
+  private static String write(ReportWriter writer, CountReport report, ReportWriter.Format format)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.write(report, format, out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,53 @@
+package app.tricount.profile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class StageProfilerTest {
+  @Test
+  void recordsCostsAndSizesPerStage() throws IOException {
+    StageProfiler profiler = new StageProfiler();
+    long[] values = profiler.measure("allocate", () -> new long[1 << 16]);
+    profiler.size("values", values.length);
+    int sum = profiler.measure("sum", () -> {
+      int total = 0;
+      for (long value : values) {
+        total += (int) value;
+      }
+      return total;
+    });
+    assertEquals(0, sum);
+
+    List<StageProfiler.Stage> stages = profiler.stages();
+    assertEquals(2, stages.size());
+    assertEquals("allocate", stages.get(0).name());
+    assertEquals(Long.valueOf(1 << 16), stages.get(0).sizes().get("values"));
+    assertTrue(stages.get(0).wallNanos() >= 0);
+    if (stages.get(0).allocatedBytes() >= 0) {
+      assertTrue(stages.get(0).allocatedBytes() >= 8L << 16, "allocated " + stages.get(0).allocatedBytes());
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    profiler.writeJson(out, "figure.json");
+    String json = out.toString(StandardCharsets.UTF_8);
+    assertTrue(json.startsWith("{\"input\":\"figure.json\",\"stages\":[{\"stage\":\"allocate\""), json);
+    assertTrue(json.contains("\"values\":65536"), json);
+    assertTrue(json.contains("\"total\":{\"wallMs\":"), json);
+    assertEquals(1, json.lines().count());
+  }
+
+  @Test
+  void disabledProfilerRunsStagesWithoutRecording() {
+    StageProfiler profiler = StageProfiler.disabled();
+    int sum = profiler.measure("sum", () -> 1 + 2);
+    assertEquals(3, sum);
+    profiler.size("values", 3);
+    assertEquals(0, profiler.stages().size());
+  }
+}
@@ -0,0 +1,205 @@
+package app.tricount.server;
+
+import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.graph.VisualTriangleCounter;
+import app.tricount.io.ProjectIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CountServerTest {
+  private static final String TRIANGLE = """
+      {"tolerance": 1e-6, "segments": [
+        {"id": "ab", "x1": 0, "y1": 0, "x2": 10, "y2": 0},
+        {"id": "bc", "x1": 10, "y1": 0, "x2": 5, "y2": 8.66},
+        {"id": "ca", "x1": 5, "y1": 8.66, "x2": 0, "y2": 0}
+      ]}
+      """;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @Test
+  void countsJsonAndBinaryProjects() throws Exception {
+    CountServer.Options options = CountServer.Options.defaults().withPort(0);
+    try (CountServer server = CountServer.start(new VisualTriangleCounter(), options)) {
+      HttpResponse<String> json = post(server, "?triangles=true", HttpRequest.BodyPublishers.ofString(TRIANGLE));
+      assertEquals(200, json.statusCode());
+      assertTrue(json.body().contains("\"triangles\":1"), json.body());
+      assertTrue(json.body().contains("\"triangleCoordinates\":[["), json.body());
+
+      Path binary = Files.createTempFile("server", ".tcb");
+      new ProjectIO().saveBinary(binary, 1e-6, List.of(
+          new Segment(0, 0, 10, 0, "ab"),
+          new Segment(10, 0, 5, 8.66, "bc"),
+          new Segment(5, 8.66, 0, 0, "ca"),
+          new Segment(5, 8.66, 5, 0, "median")));
+      HttpResponse<String> tcb = post(server, "", HttpRequest.BodyPublishers.ofFile(binary));
+      assertEquals(200, tcb.statusCode());
+      assertTrue(tcb.body().contains("\"triangles\":3"), tcb.body());
+
+      HttpResponse<String> broken = post(server, "", HttpRequest.BodyPublishers.ofString("{\"segments\": ["));
+      assertEquals(400, broken.statusCode());
+    }
+  }
+
+  @Test
+  void gzipBodiesAreCappedAfterInflation() throws Exception {
+    CountServer.Options defaults = CountServer.Options.defaults();
+    CountServer.Options options = new CountServer.Options(
+        0, defaults.workers(), defaults.queueCapacity(), defaults.budgetMillis(), 64 * 1024);
+    try (CountServer server = CountServer.start(new VisualTriangleCounter(), options)) {
+      HttpResponse<String> small = post(server, "", HttpRequest.BodyPublishers.ofByteArray(gzip(TRIANGLE)));
+      assertEquals(200, small.statusCode(), small.body());
+
+      byte[] bomb = gzip(TRIANGLE.replace("{\"tolerance\"", " ".repeat(1 << 20) + "{\"tolerance\""));
+      assertTrue(bomb.length < 64 * 1024);
+      HttpResponse<String> inflated = post(server, "", HttpRequest.BodyPublishers.ofByteArray(bomb));
+      assertEquals(413, inflated.statusCode(), inflated.body());
+    }
+  }
+
+  @Test
+  void fullQueueAndExpiredBudgetAreRejected() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountServer.Options options = CountServer.Options.defaults()
+        .withPort(0)
+        .withWorkers(1)
+        .withQueueCapacity(1)
+        .withBudgetMillis(10_000);
+    try (CountServer server = CountServer.start(new BlockingCounter(started, release), options)) {
+      CompletableFuture<HttpResponse<String>> running = postAsync(server, "");
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      // The worker is busy, so of the next two requests one takes the only queue slot and the other is
+      // rejected at once; whichever answers first must be the rejection.
+      List<CompletableFuture<HttpResponse<String>>> contenders =
+          List.of(postAsync(server, ""), postAsync(server, ""));
+      CompletableFuture.anyOf(contenders.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+      List<CompletableFuture<HttpResponse<String>>> queued = new ArrayList<>();
+      HttpResponse<String> rejected = null;
+      for (CompletableFuture<HttpResponse<String>> contender : contenders) {
+        if (contender.isDone()) {
+          rejected = contender.get();
+        } else {
+          queued.add(contender);
+        }
+      }
+      assertEquals(503, rejected.statusCode());
+      assertTrue(rejected.headers().firstValue("Retry-After").isPresent());
+      assertEquals(1, queued.size());
+
+      release.countDown();
+      assertEquals(200, running.get(10, TimeUnit.SECONDS).statusCode());
+      assertEquals(200, queued.get(0).get(10, TimeUnit.SECONDS).statusCode());
+    }
+    CountDownLatch never = new CountDownLatch(1);
+    try (CountServer server = CountServer.start(new BlockingCounter(new CountDownLatch(1), never), options)) {
+      HttpResponse<String> expired = postAsync(server, "?budgetMs=100").get(10, TimeUnit.SECONDS);
+      assertEquals(504, expired.statusCode());
+    }
+  }
+
+  @Test
+  void uploadsInProgressCountAgainstAdmission() throws Exception {
+    CountServer.Options options = CountServer.Options.defaults().withPort(0).withWorkers(1).withQueueCapacity(0);
+    try (CountServer server = CountServer.start(new VisualTriangleCounter(), options)) {
+      try (Socket upload = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+        OutputStream out = upload.getOutputStream();
+        out.write("POST /count HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1000\r\n\r\n{"
+            .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        // The stalled upload holds the only permit once its handler starts; until then requests still pass.
+        assertEquals(503, postUntil(server, 503).statusCode());
+      }
+      assertEquals(200, postUntil(server, 200).statusCode());
+    }
+  }
+
+  private HttpResponse<String> postUntil(CountServer server, int status) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    HttpResponse<String> response;
+    do {
+      response = post(server, "", HttpRequest.BodyPublishers.ofString(TRIANGLE));
+    } while (response.statusCode() != status && System.nanoTime() < deadline);
+    return response;
+  }
+
+  private static byte[] gzip(String text) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  private HttpResponse<String> post(CountServer server, String query, HttpRequest.BodyPublisher body)
+      throws IOException, InterruptedException {
+    return client.send(request(server, query, body), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private CompletableFuture<HttpResponse<String>> postAsync(CountServer server, String query) {
+    HttpRequest request = request(server, query, HttpRequest.BodyPublishers.ofString(TRIANGLE));
+    return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpRequest request(CountServer server, String query, HttpRequest.BodyPublisher body) {
+    return HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/count" + query))
+        .POST(body)
+        .build();
+  }
+
+  private static final class BlockingCounter implements TriangleCounter {
+    private final TriangleCounter delegate = new VisualTriangleCounter();
+    private final CountDownLatch started;
+    private final CountDownLatch release;
+
+    BlockingCounter(CountDownLatch started, CountDownLatch release) {
+      this.started = started;
+      this.release = release;
+    }
+
+    @Override
+    public Graph buildPlanarGraph(SegmentStore segments, double coordTol) {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException error) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(error);
+      }
+      return delegate.buildPlanarGraph(segments, coordTol);
+    }
+
+    @Override
+    public Graph contractStraightVertices(Graph graph, double angleTol) {
+      return delegate.contractStraightVertices(graph, angleTol);
+    }
+
+    @Override
+    public List<int[]> triangles(Graph graph) {
+      return delegate.triangles(graph);
+    }
+  }
+}
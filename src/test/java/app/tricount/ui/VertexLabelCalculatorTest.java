@@ -0,0 +1,56 @@
+package app.tricount.ui;
+
+import java.util.List;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class VertexLabelCalculatorTest {
+  private static final double EPSILON = 1e-9;
+
+  private final VertexLabelCalculator calculator = new VertexLabelCalculator(10);
+
+  @Test
+  void isolatedVertexUsesTheBaseOffsetAbove() {
+    assertOffset(0, -10, calculator.label("A", new Point2D(3, 4), List.of()));
+  }
+
+  @Test
+  void singleEdgeLabelGoesAboveAtTheMinimumClearance() {
+    Point2D origin = new Point2D(50, 50);
+    SegmentCanvas.VertexLabel label = calculator.label("A", origin, List.of(new Point2D(150, 50)));
+    assertEquals(50d, label.x(), 0d);
+    assertEquals(50d, label.y(), 0d);
+    assertOffset(0, -14, label);
+  }
+
+  @Test
+  void oppositeEdgesPutTheLabelBesideTheLine() {
+    // A vertical line through the vertex leaves two half-planes; the tie keeps the first one, on the left.
+    SegmentCanvas.VertexLabel label =
+        calculator.label("A", Point2D.ZERO, List.of(new Point2D(0, 100), new Point2D(0, -100)));
+    assertOffset(-14, 0, label);
+  }
+
+  @Test
+  void gapWrappingPastTheStartingAngleIsFound() {
+    // Blocked directions at 30, 100, 210 and 280 degrees leave two 110 degree gaps. The one from 280
+    // around to 30 wraps past the sort order's start and wins because its bisector at 335 degrees points up.
+    SegmentCanvas.VertexLabel label =
+        calculator.label("A", Point2D.ZERO, List.of(polar(100, 30), polar(100, 100)));
+    double distance = 14 / Math.sin(Math.toRadians(55));
+    Point2D expected = polar(distance, 335);
+    assertOffset(expected.getX(), expected.getY(), label);
+  }
+
+  private static Point2D polar(double length, double degrees) {
+    double radians = Math.toRadians(degrees);
+    return new Point2D(length * Math.cos(radians), length * Math.sin(radians));
+  }
+
+  private static void assertOffset(double x, double y, SegmentCanvas.VertexLabel label) {
+    assertEquals(x, label.offsetX(), EPSILON);
+    assertEquals(y, label.offsetY(), EPSILON);
+  }
+}
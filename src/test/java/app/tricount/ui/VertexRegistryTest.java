@@ -0,0 +1,76 @@
+package app.tricount.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public final class VertexRegistryTest {
+  @Test
+  void registerMergesAcrossCellBoundariesAndPrefersTheClosestVertex() {
+    VertexRegistry registry = new VertexRegistry(1.0);
+    VertexRegistry.Vertex a = registry.register(new Point2D(0.99, 0));
+    assertSame(a, registry.register(new Point2D(1.01, 0)));
+    assertSame(a, registry.register(new Point2D(0.5, -0.5)));
+    assertEquals(3, a.usage());
+
+    VertexRegistry.Vertex b = registry.register(new Point2D(2.5, 0));
+    assertEquals("B", b.id());
+    // 0.8 from A but 0.7 from B: the closest vertex wins, not the first one found.
+    assertSame(b, registry.register(new Point2D(1.8, 0)));
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  void removalMovesTheLastVertexIntoTheFreedSlot() {
+    VertexRegistry registry = new VertexRegistry(0.1);
+    VertexRegistry.Vertex a = registry.register(new Point2D(0, 0));
+    VertexRegistry.Vertex b = registry.register(new Point2D(5, 0));
+    VertexRegistry.Vertex c = registry.register(new Point2D(10, 0));
+
+    registry.decrement(a.id());
+    assertEquals(List.of(c, b), registry.vertices());
+    assertEquals(List.of(c.point(), b.point()), registry.snapPoints());
+    assertNull(registry.get("A"));
+    assertSame(c, registry.register(new Point2D(10.05, 0)));
+
+    registry.decrement(b.id());
+    assertEquals(List.of(c), registry.vertices());
+    VertexRegistry.Vertex d = registry.register(new Point2D(0, 0));
+    assertEquals("D", d.id());
+    assertEquals(List.of(c, d), registry.vertices());
+  }
+
+  @Test
+  void batchesNotifyOnceWithTheNetChange() {
+    VertexRegistry registry = new VertexRegistry(0.1);
+    VertexRegistry.Vertex kept = registry.register(new Point2D(0, 0));
+    VertexRegistry.Vertex dropped = registry.register(new Point2D(5, 0));
+    List<List<VertexRegistry.Vertex>> calls = new ArrayList<>();
+    registry.addListener((added, removed) -> {
+      calls.add(List.copyOf(added));
+      calls.add(List.copyOf(removed));
+    });
+
+    registry.beginBatch();
+    registry.beginBatch();
+    VertexRegistry.Vertex fresh = registry.register(new Point2D(10, 0));
+    VertexRegistry.Vertex temporary = registry.register(new Point2D(15, 0));
+    registry.decrement(temporary.id());
+    registry.decrement(dropped.id());
+    registry.endBatch();
+    assertEquals(0, calls.size());
+    registry.endBatch();
+
+    assertEquals(List.of(List.of(fresh), List.of(dropped)), calls);
+    assertEquals(List.of(kept, fresh), registry.vertices());
+
+    calls.clear();
+    registry.decrement(fresh.id());
+    assertEquals(List.of(List.of(), List.of(fresh)), calls);
+  }
+}
@@ -0,0 +1,112 @@
+package app.tricount.watch;
+
+import app.tricount.geometry.Segment;
+import app.tricount.geometry.SegmentStore;
+import app.tricount.graph.Graph;
+import app.tricount.graph.TriangleCounter;
+import app.tricount.graph.VisualTriangleCounter;
+import app.tricount.io.ProjectIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ProjectWatcherTest {
+  @Test
+  void recountsOnlyWhenGeometryChanges() throws IOException {
+    Path file = Files.createTempFile("watch", ".json");
+    ProjectIO io = new ProjectIO();
+    io.save(file, 1e-6, List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bc"),
+        new Segment(5, 8.66, 0, 0, "ca")));
+    ProjectWatcher watcher = new ProjectWatcher(file, new VisualTriangleCounter(), 1e-6);
+
+    ProjectWatcher.Update first = watcher.recount();
+    assertTrue(first.recounted());
+    assertEquals(3, first.diff().added());
+    assertEquals(1, first.triangles());
+
+    io.save(file, 1e-6, List.of(
+        new Segment(0, 0, 5, 8.66, "renamed-ca"),
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(5, 8.66, 10, 0, "bc")));
+    ProjectWatcher.Update reordered = watcher.recount();
+    assertFalse(reordered.recounted());
+    assertTrue(reordered.diff().isEmpty());
+    assertEquals(1, reordered.triangles());
+
+    io.save(file, 1e-6, List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bc"),
+        new Segment(5, 8.66, 0, 0, "ca"),
+        new Segment(5, 8.66, 5, 0, "median")));
+    ProjectWatcher.Update median = watcher.recount();
+    assertTrue(median.recounted());
+    assertEquals(new GeometryDiff(1, 0), median.diff());
+    assertEquals(3, median.triangles());
+
+    io.save(file, 1e-3, List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bc"),
+        new Segment(5, 8.66, 0, 0, "ca"),
+        new Segment(5, 8.66, 5, 0, "median")));
+    assertTrue(watcher.recount().recounted());
+  }
+
+  @Test
+  void failedCountIsNotReusedForUnchangedGeometry() throws IOException {
+    Path file = Files.createTempFile("watch", ".json");
+    ProjectIO io = new ProjectIO();
+    List<Segment> triangle = List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bc"),
+        new Segment(5, 8.66, 0, 0, "ca"));
+    io.save(file, 1e-6, triangle);
+    FlakyCounter counter = new FlakyCounter();
+    ProjectWatcher watcher = new ProjectWatcher(file, counter, 1e-6);
+    assertEquals(1, watcher.recount().triangles());
+
+    io.save(file, 1e-6, List.of(
+        new Segment(0, 0, 10, 0, "ab"),
+        new Segment(10, 0, 5, 8.66, "bc"),
+        new Segment(5, 8.66, 0, 0, "ca"),
+        new Segment(5, 8.66, 5, 0, "median")));
+    counter.failNext = true;
+    assertThrows(IllegalStateException.class, watcher::recount);
+
+    ProjectWatcher.Update retry = watcher.recount();
+    assertTrue(retry.recounted());
+    assertEquals(3, retry.triangles());
+  }
+
+  private static final class FlakyCounter implements TriangleCounter {
+    private final VisualTriangleCounter delegate = new VisualTriangleCounter();
+    private boolean failNext;
+
+    @Override
+    public Graph buildPlanarGraph(SegmentStore segments, double coordTol) {
+      return delegate.buildPlanarGraph(segments, coordTol);
+    }
+
+    @Override
+    public Graph contractStraightVertices(Graph graph, double angleTol) {
+      return graph;
+    }
+
+    @Override
+    public List<int[]> triangles(Graph graph) {
+      if (failNext) {
+        failNext = false;
+        throw new IllegalStateException("engine failure");
+      }
+      return delegate.triangles(graph);
+    }
+  }
+}